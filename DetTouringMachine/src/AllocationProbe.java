@@ -0,0 +1,78 @@
+import java.lang.management.ManagementFactory;
+
+/**
+ * Diagnostic measuring the heap allocated by the step loop of a machine.
+ *
+ * The word is run once to learn how many cells the WorkTapes need, then
+ * again on WorkTapes reserving that storage. Only the second run is
+ * measured, so it contains neither growing tapes nor setting up the run and
+ * shows what the steps themselves allocate. The Shell command "allocation"
+ * reports it for the current machine after {@link #WARM_UP} runs, for runs
+ * of at least {@link #MIN_STEPS} steps: only then is {@link #TOLERANCE}
+ * less than a byte per step, so a step loop allocating anything at all
+ * exceeds it.
+ */
+public final class AllocationProbe {
+
+    /**
+     * Bytes tolerated for measuring itself.
+     */
+    static final long TOLERANCE = 1024;
+
+    /**
+     * Steps a measured run needs at least.
+     */
+    static final long MIN_STEPS = 1000000;
+
+    /**
+     * Runs before the measured one. With {@link #MIN_STEPS} steps each,
+     * the step loop is compiled before the measured run.
+     */
+    static final int WARM_UP = 5;
+
+    /**
+     * Utility class constructor preventing instantiation.
+     */
+    private AllocationProbe() {
+        throw new UnsupportedOperationException(
+                "Illegal call of utility class constructor.");
+    }
+
+    /**
+     * Measures the bytes allocated by the current thread while running the
+     * machine on the given word.
+     *
+     * @param machine The machine.
+     * @param input The word.
+     * @return The amount of steps and the allocated bytes.
+     * @throws UnsupportedOperationException If the JVM cannot measure
+     * allocations.
+     */
+    public static long[] measure(DetTuringMachine machine, String input) {
+        com.sun.management.ThreadMXBean threads
+                = (com.sun.management.ThreadMXBean)
+                ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            throw new UnsupportedOperationException(
+                    "Allocation measuring not supported!");
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        //First run finding the amount of cells needed
+        Configuration conf = machine.createConfiguration(
+                new InputTape(input, machine.getAlphabet()));
+        machine.run(conf);
+        int reserved = 0;
+        for (Tape tape : conf.getTapes()) {
+            reserved = Math.max(reserved, tape.getUsedCells());
+        }
+
+        conf = machine.createConfiguration(
+                new InputTape(input, machine.getAlphabet()), reserved);
+        long before = threads.getThreadAllocatedBytes(thread);
+        machine.run(conf);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        return new long[] {conf.getSteps(), allocated};
+    }
+}
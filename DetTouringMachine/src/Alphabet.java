@@ -0,0 +1,214 @@
+import java.util.Arrays;
+
+/**
+ * Alphabet of a Turing machine, interning its symbols to dense codes.
+ *
+ * The blank always has the code 0, the symbols of the alphabet follow in
+ * the order they were declared. Symbols are translated into codes once when
+ * a word or program enters the machine and back when the output leaves it,
+ * so tapes and Commands only store codes. Characters not being part of the
+ * alphabet are translated into {@code FOREIGN}, which no Command reads.
+ */
+public final class Alphabet {
+
+    /**
+     * Code of the blank.
+     */
+    static final byte BLANK = 0;
+
+    /**
+     * Code of all characters not being part of the alphabet.
+     */
+    static final byte FOREIGN = -1;
+
+    /**
+     * Maximum amount of symbols, the blank included.
+     */
+    static final int MAX_SIZE = Byte.MAX_VALUE;
+
+    /**
+     * Symbol of {@code FOREIGN} and all other codes not being part of the
+     * alphabet.
+     */
+    static final char UNKNOWN = '\uFFFD';
+
+    //Widest span of chars translated by a table, sparser alphabets search
+    private static final int TABLE_SPAN = 1024;
+
+    /**
+     * Alphabet of the symbols {@code FIRST_CHAR} to {@code LAST_CHAR} of
+     * the TuringMachine interface, used if a machine declares none.
+     */
+    public static final Alphabet DEFAULT = new Alphabet(rangeOf(
+            TuringMachine.FIRST_CHAR, TuringMachine.LAST_CHAR));
+
+    private final char[] symbols;
+    //Smallest symbol, the blank included
+    private final char base;
+    //Codes of all chars from base on up to the largest symbol, FOREIGN if
+    //not part of the alphabet. null if wider than TABLE_SPAN
+    private final byte[] codes;
+    //All symbols in ascending order and their codes, searched if there is
+    //no table
+    private final char[] sorted;
+    private final byte[] sortedCodes;
+
+    /**
+     * Constructor method for an alphabet.
+     * @param declared the symbols of the alphabet, without the blank.
+     */
+    private Alphabet(String declared) {
+        this.symbols = new char[declared.length() + 1];
+        symbols[BLANK] = TuringMachine.BLANK_CHAR;
+        declared.getChars(0, declared.length(), symbols, 1);
+
+        this.sorted = symbols.clone();
+        Arrays.sort(sorted);
+        this.base = sorted[0];
+        int span = sorted[sorted.length - 1] - base + 1;
+        if (span <= TABLE_SPAN) {
+            this.codes = new byte[span];
+            this.sortedCodes = null;
+            Arrays.fill(codes, FOREIGN);
+            for (int i = 0; i < symbols.length; i++) {
+                codes[symbols[i] - base] = (byte) i;
+            }
+        } else {
+            this.codes = null;
+            this.sortedCodes = new byte[sorted.length];
+            for (int i = 0; i < symbols.length; i++) {
+                sortedCodes[Arrays.binarySearch(sorted, symbols[i])]
+                        = (byte) i;
+            }
+        }
+    }
+
+    /**
+     * Creates an alphabet from its declaration, a sequence of symbols and
+     * ranges of symbols like {@code a-z0-9#}. A minus being the first or
+     * last character is a symbol itself.
+     *
+     * @param declaration The declaration of the symbols.
+     * @return The alphabet, null if the declaration contains the blank,
+     * whitespace, a symbol twice, an empty range or too many symbols.
+     */
+    public static Alphabet parse(String declaration) {
+        StringBuilder declared = new StringBuilder();
+        int i = 0;
+        while (i < declaration.length()) {
+            char first = declaration.charAt(i);
+            if (i + 2 < declaration.length()
+                    && declaration.charAt(i + 1) == '-') {
+                char last = declaration.charAt(i + 2);
+                if (last < first || last - first + 1 >= MAX_SIZE) {
+                    return null;
+                }
+                declared.append(rangeOf(first, last));
+                i += 3;
+            } else {
+                declared.append(first);
+                i++;
+            }
+        }
+
+        String toCheck = declared.toString();
+        if (toCheck.isEmpty() || toCheck.length() >= MAX_SIZE) {
+            return null;
+        }
+        for (int j = 0; j < toCheck.length(); j++) {
+            char symbol = toCheck.charAt(j);
+            if (symbol == TuringMachine.BLANK_CHAR
+                    || Character.isWhitespace(symbol)
+                    || toCheck.indexOf(symbol) != j) {
+                return null;
+            }
+        }
+        return new Alphabet(toCheck);
+    }
+
+    /**
+     * Side method listing all chars of a range.
+     * @param first the first char.
+     * @param last the last char.
+     * @return the chars from first to last.
+     */
+    private static String rangeOf(char first, char last) {
+        StringBuilder toReturn = new StringBuilder();
+        //Counting in int, a char would wrap around after the last char
+        for (int c = first; c <= last; c++) {
+            toReturn.append((char) c);
+        }
+        return toReturn.toString();
+    }
+
+    /**
+     * @return the amount of symbols, the blank included.
+     */
+    public int size() {
+        return symbols.length;
+    }
+
+    /**
+     * Translates a symbol into its code.
+     * @param symbol the symbol.
+     * @return the code, {@code FOREIGN} if not part of the alphabet.
+     */
+    public byte encode(char symbol) {
+        if (codes != null) {
+            int offset = symbol - base;
+            return offset < codes.length && offset >= 0 ? codes[offset]
+                    : FOREIGN;
+        }
+        int found = Arrays.binarySearch(sorted, symbol);
+        return found < 0 ? FOREIGN : sortedCodes[found];
+    }
+
+    /**
+     * Translates a word into the codes of its symbols.
+     * @param word the word.
+     * @return the codes.
+     */
+    public byte[] encode(String word) {
+        byte[] toReturn = new byte[word.length()];
+        for (int i = 0; i < toReturn.length; i++) {
+            toReturn[i] = encode(word.charAt(i));
+        }
+        return toReturn;
+    }
+
+    /**
+     * Translates a code back into its symbol.
+     * @param code the code.
+     * @return the symbol, {@code UNKNOWN} for {@code FOREIGN} and all other
+     * codes not part of the alphabet.
+     */
+    public char decode(byte code) {
+        return code >= 0 && code < symbols.length ? symbols[code] : UNKNOWN;
+    }
+
+    /**
+     * @param symbol the char to check.
+     * @return true if the char may be written on a tape, i.e., if it is the
+     * blank or part of the alphabet.
+     */
+    public boolean isTapeSymbol(char symbol) {
+        return encode(symbol) != FOREIGN;
+    }
+
+    /**
+     * @param symbol the char to check.
+     * @return true if the char is part of the alphabet, the blank excluded.
+     */
+    public boolean isInputSymbol(char symbol) {
+        return encode(symbol) > BLANK;
+    }
+
+    /**
+     * @return the declaration of the alphabet, all symbols without the
+     * blank.
+     */
+    @Override
+    public String toString() {
+        return new String(symbols, 1, symbols.length - 1);
+    }
+}
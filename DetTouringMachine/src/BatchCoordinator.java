@@ -0,0 +1,401 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coordinator checking a batch of words, one per line of a file, on worker
+ * processes (see BatchWorker), so a giant batch is neither limited by the
+ * heap nor slowed down by the garbage collection of a single JVM.
+ *
+ * The words are read in chunks, only as many ahead as a window of chunks
+ * allows, and sent to the workers connected to the coordinator. The
+ * results are written in the order of the words, in the format of the
+ * Shell's batch command, which runs the coordinator when given options.
+ * Local workers are started by the coordinator;
+ * workers on other hosts are started there with the address of the
+ * coordinator and connect themselves. A worker whose process ends or that
+ * does not answer a chunk in time is dropped, its chunk is sent again and a
+ * local worker is replaced by a new process. A chunk failing
+ * {@link #MAX_ATTEMPTS} times ends the batch.
+ */
+public final class BatchCoordinator {
+
+    /**
+     * Attempts of a chunk until the batch fails.
+     */
+    static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Chunk of words with its position in the batch.
+     */
+    private static final class Chunk {
+        private final long id;
+        private final List<String> words;
+        private int attempts;
+
+        private Chunk(long id, List<String> words) {
+            this.id = id;
+            this.words = words;
+        }
+    }
+
+    private final File machine;
+    private final int chunkSize;
+    private final int timeoutMillis;
+    private final List<String> jvmOptions;
+    private final ServerSocket serverSocket;
+    //Chunks read ahead of the first one not yet written
+    private final int window;
+
+    //All following fields are guarded by this coordinator
+    private final ArrayDeque<Chunk> pending = new ArrayDeque<>();
+    private final Map<Long, boolean[]> finished = new HashMap<>();
+    private final Map<Long, Chunk> inFlight = new HashMap<>();
+    //Local worker processes by process ID
+    private final Map<Long, Process> processes = new HashMap<>();
+    private long chunksRead;
+    private long chunksWritten;
+    private boolean readingDone;
+    private String failure;
+    private int restarts;
+
+    /**
+     * Constructor method for a coordinator listening for workers.
+     * @param machine the machine file, loaded by every worker.
+     * @param port the port workers connect to, 0 for any free port.
+     * @param chunkSize the amount of words per chunk.
+     * @param timeoutMillis the time a worker may take for one chunk.
+     * @param window the amount of chunks read ahead.
+     * @param jvmOptions the options of the JVMs of local workers.
+     * @throws IOException If the port cannot be bound.
+     */
+    BatchCoordinator(File machine, int port, int chunkSize,
+                     int timeoutMillis, int window, List<String> jvmOptions)
+            throws IOException {
+        this.machine = machine;
+        this.chunkSize = chunkSize;
+        this.timeoutMillis = timeoutMillis;
+        this.window = window;
+        this.jvmOptions = jvmOptions;
+        //Any address, so workers on other hosts can connect
+        this.serverSocket = new ServerSocket(port, 50,
+                port == 0 ? InetAddress.getLoopbackAddress() : null);
+    }
+
+    /**
+     * @return the port the coordinator listens on.
+     */
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Starts a local worker process.
+     * @throws IOException If the process cannot be started.
+     */
+    void startLocalWorker() throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java")
+                .getPath());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("BatchWorker");
+        command.add("machine=" + machine.getPath());
+        command.add("connect=" + InetAddress.getLoopbackAddress()
+                .getHostAddress() + ":" + getPort());
+        command.add("parent=" + ProcessHandle.current().pid());
+        Process process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        synchronized (this) {
+            processes.put(process.pid(), process);
+        }
+    }
+
+    /**
+     * Checks all words of the given reader, one per line, and writes the
+     * results in their order.
+     * @param words the words, blank lines are left out.
+     * @param results the writer of the results.
+     * @throws IOException If reading or writing fails, or the batch failed.
+     */
+    void run(BufferedReader words, Writer results) throws IOException {
+        Thread acceptor = new Thread(this::acceptLoop, "dtm-coordinator");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        Thread reader = new Thread(() -> readLoop(words), "dtm-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        try {
+            while (true) {
+                List<String> chunkWords;
+                boolean[] accepted;
+                synchronized (this) {
+                    while (failure == null
+                            && !finished.containsKey(chunksWritten)
+                            && !(readingDone && chunksWritten == chunksRead)) {
+                        wait();
+                    }
+                    if (failure != null) {
+                        throw new IOException(failure);
+                    }
+                    if (readingDone && chunksWritten == chunksRead) {
+                        notifyAll();
+                        return;
+                    }
+                    accepted = finished.remove(chunksWritten);
+                    chunkWords = inFlight.remove(chunksWritten).words;
+                }
+                for (int i = 0; i < accepted.length; i++) {
+                    results.write(chunkWords.get(i) + ": "
+                            + (accepted[i] ? "accept" : "reject"));
+                    results.write(System.lineSeparator());
+                }
+                synchronized (this) {
+                    chunksWritten++;
+                    notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted!", e);
+        } finally {
+            results.flush();
+            close();
+        }
+    }
+
+    /**
+     * Side method reading the words into chunks, at most the window ahead.
+     * @param words the words.
+     */
+    private void readLoop(BufferedReader words) {
+        try {
+            List<String> chunk = new ArrayList<>();
+            String line = words.readLine();
+            while (line != null) {
+                if (!line.trim().isEmpty()) {
+                    chunk.add(line.trim());
+                }
+                if (chunk.size() == chunkSize) {
+                    addChunk(chunk);
+                    chunk = new ArrayList<>();
+                }
+                line = words.readLine();
+            }
+            if (!chunk.isEmpty()) {
+                addChunk(chunk);
+            }
+        } catch (IOException e) {
+            fail("Reading words failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            return;
+        }
+        synchronized (this) {
+            readingDone = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Side method adding a chunk once the window allows it.
+     * @param words the words of the chunk.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private synchronized void addChunk(List<String> words)
+            throws InterruptedException {
+        while (failure == null && chunksRead - chunksWritten >= window) {
+            wait();
+        }
+        Chunk chunk = new Chunk(chunksRead++, words);
+        inFlight.put(chunk.id, chunk);
+        pending.add(chunk);
+        notifyAll();
+    }
+
+    /**
+     * Side method ending the batch with an error.
+     * @param message the description of the error.
+     */
+    private synchronized void fail(String message) {
+        if (failure == null) {
+            failure = message;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Side method accepting workers until the coordinator is closed.
+     */
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread link = new Thread(() -> serveWorker(socket),
+                        "dtm-worker-link");
+                link.setDaemon(true);
+                link.start();
+            } catch (IOException e) {
+                //Server socket closed at the end of the batch
+            }
+        }
+    }
+
+    /**
+     * Side method sending chunks to one worker until the batch is done or
+     * the worker fails.
+     * @param socket the connection to the worker.
+     */
+    private void serveWorker(Socket socket) {
+        long pid = -1;
+        Chunk chunk = null;
+        try (socket) {
+            socket.setSoTimeout(timeoutMillis);
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream()));
+            if (in.readInt() != BatchWorker.MAGIC) {
+                return;
+            }
+            pid = in.readLong();
+
+            chunk = take();
+            while (chunk != null) {
+                out.writeLong(chunk.id);
+                BatchWorker.writeWords(out, chunk.words);
+                out.flush();
+                if (in.readLong() != chunk.id) {
+                    throw new IOException("Wrong chunk answered!");
+                }
+                boolean[] accepted = BatchWorker.readBits(in);
+                synchronized (this) {
+                    finished.put(chunk.id, accepted);
+                    notifyAll();
+                }
+                chunk = take();
+            }
+            out.writeLong(BatchWorker.STOP);
+            out.flush();
+        } catch (SocketTimeoutException e) {
+            workerFailed(pid, chunk, "timed out");
+        } catch (IOException e) {
+            workerFailed(pid, chunk, e.getMessage() == null
+                    ? e.getClass().getSimpleName() : e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Side method taking the next chunk to send.
+     * @return the chunk, null once the batch is done or failed.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private synchronized Chunk take() throws InterruptedException {
+        while (pending.isEmpty() && failure == null
+                && !(readingDone && chunksWritten == chunksRead)) {
+            wait();
+        }
+        if (pending.isEmpty() || failure != null) {
+            return null;
+        }
+        Chunk toReturn = pending.poll();
+        toReturn.attempts++;
+        return toReturn;
+    }
+
+    /**
+     * Side method handling a failed worker: its chunk is sent again and a
+     * local worker is replaced.
+     * @param pid the process ID of the worker, -1 if unknown.
+     * @param chunk the chunk the worker failed on, may be null.
+     * @param reason the description of the failure.
+     */
+    private void workerFailed(long pid, Chunk chunk, String reason) {
+        Process process;
+        boolean restart;
+        synchronized (this) {
+            if (chunk != null && !finished.containsKey(chunk.id)) {
+                if (chunk.attempts >= MAX_ATTEMPTS) {
+                    failure = "Chunk " + chunk.id + " failed "
+                            + chunk.attempts + " times, last: " + reason;
+                } else {
+                    pending.addFirst(chunk);
+                }
+            }
+            process = processes.remove(pid);
+            notifyAll();
+            if (process == null) {
+                return;
+            }
+            restart = failure == null;
+            if (restart) {
+                restarts++;
+            }
+        }
+        process.destroyForcibly();
+        if (!restart) {
+            return;
+        }
+        System.err.println("Error! Worker " + pid + " failed (" + reason
+                + "), restarting it.");
+        try {
+            startLocalWorker();
+        } catch (IOException e) {
+            fail("Restarting a worker failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the amount of local workers restarted so far.
+     */
+    synchronized int getRestarts() {
+        return restarts;
+    }
+
+    /**
+     * Stops the coordinator and all local workers. Called by run when the
+     * batch ends.
+     */
+    void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            //Nothing left to close
+        }
+        List<Process> toStop;
+        synchronized (this) {
+            toStop = new ArrayList<>(processes.values());
+            processes.clear();
+        }
+        for (Process process : toStop) {
+            try {
+                //Workers stop by themselves once told so
+                if (!process.waitFor(1, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Evaluator checking a batch of words at once by running the machine only
+ * once along every common prefix of the words.
+ *
+ * The words are stored in a trie. The machine runs on the symbols of a trie
+ * node until its input head reaches the end of the node's prefix. Only then
+ * the Configuration is copied for every child, each copy continuing with
+ * the next symbol of its child. Runs halting before reaching the end of a
+ * prefix decide all words below it at once.
+ */
+public final class BatchEvaluator {
+
+    /**
+     * Node of the trie of all words.
+     */
+    private static final class Node {
+        private final Map<Character, Node> children = new TreeMap<>();
+        //Positions of the words ending in this node
+        private final List<Integer> words = new ArrayList<>();
+    }
+
+    /**
+     * Node of the trie together with the Configuration reached at the end
+     * of its prefix.
+     */
+    private static final class Task {
+        private final Node node;
+        private final Configuration conf;
+
+        private Task(Node node, Configuration conf) {
+            this.node = node;
+            this.conf = conf;
+        }
+    }
+
+    /**
+     * Utility class constructor preventing instantiation.
+     */
+    private BatchEvaluator() {
+        throw new UnsupportedOperationException(
+                "Illegal call of utility class constructor.");
+    }
+
+    /**
+     * Checks which of the given words are accepted by the machine. The
+     * result is the same as calling {@link TuringMachine#check(String)} for
+     * every word.
+     *
+     * @param machine The machine.
+     * @param words The words to check.
+     * @return For every word, {@code true} if and only if it is accepted.
+     */
+    public static boolean[] checkAll(DetTuringMachine machine,
+                                     List<String> words) {
+        boolean[] toReturn = new boolean[words.size()];
+        Node root = buildTrie(words);
+
+        Deque<Task> tasks = new ArrayDeque<>();
+        Alphabet alphabet = machine.getAlphabet();
+        Configuration start
+                = machine.createConfiguration(InputTape.ofPrefix(new byte[0]));
+        tasks.push(new Task(root, start));
+
+        while (!tasks.isEmpty()) {
+            Task task = tasks.pop();
+            Configuration conf = task.conf;
+
+            //Halted before the end of the prefix, same result for all below
+            if (machine.run(conf, true)) {
+                setAll(task.node, conf.isAccepting(), toReturn);
+                continue;
+            }
+
+            //Words ending here have only blanks behind the prefix
+            if (!task.node.words.isEmpty()) {
+                Configuration complete = new Configuration(conf);
+                complete.getInputTape().completeInput();
+                machine.run(complete, true);
+                for (int word : task.node.words) {
+                    toReturn[word] = complete.isAccepting();
+                }
+            }
+
+            //Forking for every child, the last one reusing the original
+            int remaining = task.node.children.size();
+            for (Map.Entry<Character, Node> child
+                    : task.node.children.entrySet()) {
+                remaining--;
+                Configuration fork = remaining == 0
+                        ? conf : new Configuration(conf);
+                fork.getInputTape().appendInput(
+                        alphabet.encode(child.getKey()));
+                tasks.push(new Task(child.getValue(), fork));
+            }
+        }
+
+        return toReturn;
+    }
+
+    /**
+     * Side method building the trie of the given words.
+     * @param words the words.
+     * @return the root of the trie.
+     */
+    private static Node buildTrie(List<String> words) {
+        Node root = new Node();
+        for (int i = 0; i < words.size(); i++) {
+            Node current = root;
+            String word = words.get(i);
+            for (int j = 0; j < word.length(); j++) {
+                current = current.children.computeIfAbsent(word.charAt(j),
+                        symbol -> new Node());
+            }
+            current.words.add(i);
+        }
+        return root;
+    }
+
+    /**
+     * Side method setting the result of all words ending in or below the
+     * given node.
+     * @param node the node of the trie.
+     * @param accepted the result.
+     * @param results the results of all words.
+     */
+    private static void setAll(Node node, boolean accepted,
+                               boolean[] results) {
+        Deque<Node> nodes = new ArrayDeque<>();
+        nodes.push(node);
+        while (!nodes.isEmpty()) {
+            Node current = nodes.pop();
+            for (int word : current.words) {
+                results[word] = accepted;
+            }
+            for (Node child : current.children.values()) {
+                nodes.push(child);
+            }
+        }
+    }
+}
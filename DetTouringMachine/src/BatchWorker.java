@@ -0,0 +1,196 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Worker process checking chunks of a batch for a BatchCoordinator.
+ *
+ * The worker loads the machine once, connects to the coordinator and
+ * checks every chunk it receives with BatchEvaluator, until the coordinator
+ * ends the connection. The binary protocol, all numbers big-endian:
+ * <pre>
+ * worker:      MAGIC (int), process ID (long)
+ * coordinator: chunk ID (long), amount of words (int), per word its length
+ *              in bytes (int) and its UTF-8 bytes; chunk ID -1 to stop
+ * worker:      chunk ID (long), amount of words (int), one bit per word,
+ *              set if accepted, packed into bytes starting with the lowest
+ * </pre>
+ */
+public final class BatchWorker {
+
+    /**
+     * First number sent by a worker, identifying the protocol.
+     */
+    static final int MAGIC = 0x44544d31;
+
+    /**
+     * Chunk ID telling a worker to stop.
+     */
+    static final long STOP = -1;
+
+    /**
+     * Utility class constructor preventing instantiation.
+     */
+    private BatchWorker() {
+        throw new UnsupportedOperationException(
+                "Illegal call of utility class constructor.");
+    }
+
+    /**
+     * Checks chunks sent over the given connection until told to stop.
+     * @param machine the machine.
+     * @param socket the connection to the coordinator.
+     * @throws IOException If the connection fails.
+     */
+    static void serve(DetTuringMachine machine, Socket socket)
+            throws IOException {
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(socket.getOutputStream()));
+        out.writeInt(MAGIC);
+        out.writeLong(ProcessHandle.current().pid());
+        out.flush();
+
+        while (true) {
+            long chunk;
+            try {
+                chunk = in.readLong();
+            } catch (EOFException e) {
+                //Coordinator gone
+                return;
+            }
+            if (chunk == STOP) {
+                return;
+            }
+            List<String> words = readWords(in);
+            boolean[] accepted = BatchEvaluator.checkAll(machine, words);
+            out.writeLong(chunk);
+            writeBits(out, accepted);
+            out.flush();
+        }
+    }
+
+    /**
+     * Side method reading the words of a chunk.
+     * @param in the stream.
+     * @return the words.
+     * @throws IOException If the stream fails.
+     */
+    static List<String> readWords(DataInputStream in) throws IOException {
+        int amount = in.readInt();
+        List<String> toReturn = new ArrayList<>(amount);
+        for (int i = 0; i < amount; i++) {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            toReturn.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return toReturn;
+    }
+
+    /**
+     * Side method writing the words of a chunk.
+     * @param out the stream.
+     * @param words the words.
+     * @throws IOException If the stream fails.
+     */
+    static void writeWords(DataOutputStream out, List<String> words)
+            throws IOException {
+        out.writeInt(words.size());
+        for (String word : words) {
+            byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Side method writing results as packed bits.
+     * @param out the stream.
+     * @param bits the results.
+     * @throws IOException If the stream fails.
+     */
+    static void writeBits(DataOutputStream out, boolean[] bits)
+            throws IOException {
+        out.writeInt(bits.length);
+        byte[] packed = new byte[(bits.length + 7) / 8];
+        for (int i = 0; i < bits.length; i++) {
+            if (bits[i]) {
+                packed[i >>> 3] |= (byte) (1 << (i & 7));
+            }
+        }
+        out.write(packed);
+    }
+
+    /**
+     * Side method reading results written by
+     * {@link #writeBits(DataOutputStream, boolean[])}.
+     * @param in the stream.
+     * @return the results.
+     * @throws IOException If the stream fails.
+     */
+    static boolean[] readBits(DataInputStream in) throws IOException {
+        boolean[] toReturn = new boolean[in.readInt()];
+        byte[] packed = new byte[(toReturn.length + 7) / 8];
+        in.readFully(packed);
+        for (int i = 0; i < toReturn.length; i++) {
+            toReturn[i] = (packed[i >>> 3] & (1 << (i & 7))) != 0;
+        }
+        return toReturn;
+    }
+
+    /**
+     * Main method of a worker. Options are given as {@code name=value}:
+     * {@code machine} (file of the machine), {@code connect} (host:port of
+     * the coordinator) and, for local workers, {@code parent} (process ID
+     * of the coordinator).
+     * @param args the options.
+     * @throws IOException If the machine cannot be read or the connection
+     * fails.
+     * @throws ParseException If the machine file is invalid.
+     */
+    public static void main(String[] args) throws IOException,
+            ParseException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            if (option.length != 2) {
+                System.err.println("Error! Invalid option: " + arg);
+                return;
+            }
+            options.put(option[0], option[1]);
+        }
+        String[] address = options.getOrDefault("connect", "").split(":");
+        if (!options.containsKey("machine") || address.length != 2) {
+            System.err.println("Usage: BatchWorker machine=(file) "
+                    + "connect=(host:port)");
+            return;
+        }
+
+        //Local workers end together with their coordinator, even mid-chunk
+        if (options.containsKey("parent")) {
+            Runnable halt = () -> Runtime.getRuntime().halt(1);
+            ProcessHandle.of(Long.parseLong(options.get("parent")))
+                    .ifPresentOrElse(parent -> parent.onExit().thenRun(halt),
+                            halt);
+        }
+
+        DetTuringMachine machine = (DetTuringMachine) TuringMachineFactory
+                .loadFromFile(new File(options.get("machine")));
+        try (Socket socket = new Socket(address[0],
+                Integer.parseInt(address[1]))) {
+            serve(machine, socket);
+        }
+    }
+}
@@ -6,16 +6,52 @@ import java.util.Arrays;
  */
 public class Command implements Comparable<Command> {
 
+    //Head moves in the order of their ordinals, stored in the rows
+    private static final Direction[] DIRECTIONS = Direction.values();
+
     private int origin;
     private int target;
-    private char inputChar;
-    private char[] tapeChars;
-    private char[] newChars;
-    private Direction[] pointerMoves;
+    //Row of the codes and moves, see TransitionPool: the input code, the
+    //input move, then per WorkTape the code read, the code written and the
+    //move. Shared by all machines, not to be changed.
+    private final byte[] row;
+    private final int offset;
+    private final int amountTapes;
     private Direction inputPointerMove;
+    //Head moves packed with two bits per head, input head first
+    private final long packedMoves;
+    //Alphabet of the codes, for printing. Shared, so equal alphabets are
+    //the same instance
+    private final Alphabet alphabet;
+
+    /**
+     * Constructor for Commands whose row is stored at the given offset.
+     * @param source
+     * @param target
+     * @param row storage of the codes and moves, see {@link #rowOf}.
+     * @param offset position of the row in the storage.
+     * @param amountTapes amount of WorkTapes, the output tape included.
+     * @param alphabet alphabet of the codes of the symbols.
+     */
+    Command(int source, int target, byte[] row, int offset, int amountTapes,
+            Alphabet alphabet) {
+
+        this.origin = source;
+        this.target = target;
+        this.row = row;
+        this.offset = offset;
+        this.amountTapes = amountTapes;
+        this.alphabet = alphabet;
+        this.inputPointerMove = DIRECTIONS[row[offset + 1]];
+        long packed = row[offset + 1];
+        for (int i = 0; i < amountTapes && i < 31; i++) {
+            packed |= (long) row[offset + 4 + 3 * i] << (2 * (i + 1));
+        }
+        this.packedMoves = packed;
+    }
 
     /**
-     * Constructor for Commands.
+     * Constructor for Commands with a row of their own.
      * @param source
      * @param target
      * @param input
@@ -23,18 +59,46 @@ public class Command implements Comparable<Command> {
      * @param newChar
      * @param pointerMoves
      * @param inputPointerMove
+     * @param alphabet alphabet of the codes of the symbols.
      */
-    Command(int source, int target, char input, char[] tapeChars,
-            char[] newChar, Direction[] pointerMoves,
-            Direction inputPointerMove) {
+    Command(int source, int target, byte input, byte[] tapeChars,
+            byte[] newChar, Direction[] pointerMoves,
+            Direction inputPointerMove, Alphabet alphabet) {
+        this(source, target, rowOf(input, tapeChars, newChar, pointerMoves,
+                inputPointerMove), 0, tapeChars.length, alphabet);
+    }
 
-        this.origin = source;
-        this.target = target;
-        this.inputChar = input;
-        this.tapeChars = tapeChars;
-        this.newChars = newChar;
-        this.pointerMoves = pointerMoves;
-        this.inputPointerMove = inputPointerMove;
+    /**
+     * Builds the row of a Command: the input code, the ordinal of the input
+     * move, then for every WorkTape the code read, the code written and the
+     * ordinal of the move, which is the move plus one as in the packed
+     * moves.
+     * @param input
+     * @param tapeChars
+     * @param newChars
+     * @param pointerMoves
+     * @param inputPointerMove
+     * @return the row.
+     */
+    static byte[] rowOf(byte input, byte[] tapeChars, byte[] newChars,
+                        Direction[] pointerMoves, Direction inputPointerMove) {
+        byte[] toReturn = new byte[width(tapeChars.length)];
+        toReturn[0] = input;
+        toReturn[1] = (byte) inputPointerMove.ordinal();
+        for (int i = 0; i < tapeChars.length; i++) {
+            toReturn[2 + 3 * i] = tapeChars[i];
+            toReturn[3 + 3 * i] = newChars[i];
+            toReturn[4 + 3 * i] = (byte) pointerMoves[i].ordinal();
+        }
+        return toReturn;
+    }
+
+    /**
+     * @param amountTapes amount of WorkTapes, the output tape included.
+     * @return the amount of bytes of a row.
+     */
+    static int width(int amountTapes) {
+        return 2 + 3 * amountTapes;
     }
 
     /**
@@ -49,18 +113,18 @@ public class Command implements Comparable<Command> {
         int pointerMoveInt;
 
         //Move pointers of WorkTapes and write new symbols
-        for (int i = 0; i < pointerMoves.length; i++) {
-            pointerMoveInt = pointerMoves[i].getMoveInt();
+        for (int i = 0, at = offset + 2; i < amountTapes; i++, at += 3) {
+            pointerMoveInt = row[at + 2] - 1;
             Tape current = workTapes[i];
 
             if (pointerMoveInt > 0) {
-                current.addNewChar(newChars[i]);
+                current.addNewChar(row[at + 1]);
                 current.movePointerUp();
             } else if (pointerMoveInt < 0) {
-                current.addNewChar(newChars[i]);
+                current.addNewChar(row[at + 1]);
                 current.movePointerDown();
             } else {
-                current.addNewChar(newChars[i]);
+                current.addNewChar(row[at + 1]);
             }
         }
 
@@ -74,16 +138,120 @@ public class Command implements Comparable<Command> {
         return target;
     }
 
+    /**
+     * @return the ID of the State this Command starts from.
+     */
+    public int getOrigin() {
+        return origin;
+    }
+
+    /**
+     * @return the code of the symbol read on the InputTape.
+     */
+    public byte getInputChar() {
+        return row[offset];
+    }
+
+    /**
+     * @return the amount of WorkTapes, the output tape included.
+     */
+    public int getTapeCount() {
+        return amountTapes;
+    }
+
+    /**
+     * @return a copy of the codes of the symbols read on the WorkTapes, the
+     * output tape first.
+     */
+    public byte[] getTapeChars() {
+        byte[] toReturn = new byte[amountTapes];
+        for (int i = 0; i < amountTapes; i++) {
+            toReturn[i] = getTapeChar(i);
+        }
+        return toReturn;
+    }
+
+    /**
+     * @param tape the position of the WorkTape, 0 for the output tape.
+     * @return the code of the symbol read on the WorkTape.
+     */
+    public byte getTapeChar(int tape) {
+        return row[offset + 2 + 3 * tape];
+    }
+
+    /**
+     * @return the move of the InputTape head.
+     */
+    public Direction getInputPointerMove() {
+        return inputPointerMove;
+    }
+
+    /**
+     * @return a copy of the moves of the WorkTape heads, the output tape
+     * first.
+     */
+    public Direction[] getPointerMoves() {
+        Direction[] toReturn = new Direction[amountTapes];
+        for (int i = 0; i < amountTapes; i++) {
+            toReturn[i] = getPointerMove(i);
+        }
+        return toReturn;
+    }
+
+    /**
+     * @param tape the position of the WorkTape, 0 for the output tape.
+     * @return the move of the head of the WorkTape.
+     */
+    public Direction getPointerMove(int tape) {
+        return DIRECTIONS[row[offset + 4 + 3 * tape]];
+    }
+
+    /**
+     * @return a copy of the codes written on the WorkTapes, the output tape
+     * first.
+     */
+    public byte[] getNewChars() {
+        byte[] toReturn = new byte[amountTapes];
+        for (int i = 0; i < amountTapes; i++) {
+            toReturn[i] = getNewChar(i);
+        }
+        return toReturn;
+    }
+
+    /**
+     * @param tape the position of the WorkTape, 0 for the output tape.
+     * @return the code written on the WorkTape.
+     */
+    public byte getNewChar(int tape) {
+        return row[offset + 3 + 3 * tape];
+    }
+
+    /**
+     * @return the ID of the State this Command leads to.
+     */
+    public int getTarget() {
+        return target;
+    }
+
+    /**
+     * @return the head moves packed with two bits per head, see
+     * {@link TraceRecorder}.
+     */
+    public long getPackedMoves() {
+        return packedMoves;
+    }
+
     /**
      * Converting the Command into a String to be printable.
      * @return Command as a String.
      */
     public String commandToString() {
-        String toReturn = "(" + String.valueOf(origin) + ", " + inputChar;
+        String toReturn = "(" + String.valueOf(origin) + ", "
+                + alphabet.decode(getInputChar());
 
         //Iterating through the initial situation of the command
-        for (int i = 0; i < tapeChars.length; i++) {
-            toReturn = toReturn + ", " + tapeChars[i];
+        for (int i = 0; i < amountTapes; i++) {
+            toReturn = toReturn + ", " + alphabet.decode(getTapeChar(i));
         }
 
         //Adding the transition to the String
@@ -91,15 +259,87 @@ public class Command implements Comparable<Command> {
                 + inputPointerMove.getMoveStr();
 
         //Iterating through the second part of the command
-        for (int i = 0; i < newChars.length; i++) {
+        for (int i = 0; i < amountTapes; i++) {
 
-            toReturn = toReturn + ", " + newChars[i] + ", "
-                            + pointerMoves[i].getMoveStr();
+            toReturn = toReturn + ", " + alphabet.decode(getNewChar(i)) + ", "
+                            + getPointerMove(i).getMoveStr();
         }
 
         return toReturn + ")";
     }
 
+    /**
+     * Method checking if the Command is executable for the given read
+     * symbols, without creating a Command to compare to.
+     * @param input code of the symbol read on the InputTape.
+     * @param tapeCodes codes of the symbols read on the WorkTapes.
+     * @return true if the input character and WorkTape-characters are equal.
+     */
+    public boolean fits(byte input, byte[] tapeCodes) {
+        if (row[offset] != input) {
+            return false;
+        }
+        for (int i = 0, at = offset + 2; i < amountTapes; i++, at += 3) {
+            if (row[at] != tapeCodes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares the content of two Commands: the States, the alphabet and
+     * the rows. The position in a Turing program is not part of a Command,
+     * so equal transitions of all machines are the same Command.
+     * @param other the Command to compare to.
+     * @return true if both Commands are equal.
+     */
+    boolean sameAs(Command other) {
+        return origin == other.origin && target == other.target
+                && amountTapes == other.amountTapes
+                && alphabet == other.alphabet
+                && Arrays.equals(row, offset, offset + width(amountTapes),
+                        other.row, other.offset,
+                        other.offset + width(other.amountTapes));
+    }
+
+    /**
+     * @return the hash of all parts compared by {@link #sameAs(Command)}.
+     */
+    int contentHash() {
+        int toReturn = origin;
+        toReturn = 31 * toReturn + target;
+        toReturn = 31 * toReturn + System.identityHashCode(alphabet);
+        for (int i = offset; i < offset + width(amountTapes); i++) {
+            toReturn = 31 * toReturn + row[i];
+        }
+        return toReturn;
+    }
+
+    /**
+     * Compares the symbols read by two Commands, the input first.
+     * @param other the Command to compare to.
+     * @return a negative number, zero or a positive number if the symbols
+     * read by this Command are less than, equal to or greater than the
+     * ones read by the other.
+     */
+    int compareReads(Command other) {
+        int toReturn = Byte.compare(getInputChar(), other.getInputChar());
+        for (int i = 0; i < amountTapes && toReturn == 0; i++) {
+            toReturn = Byte.compare(getTapeChar(i), other.getTapeChar(i));
+        }
+        return toReturn;
+    }
+
+    /**
+     * Copies the row of this Command into the given storage.
+     * @param storage the storage.
+     * @param at the position of the row in the storage.
+     */
+    void copyRow(byte[] storage, int at) {
+        System.arraycopy(row, offset, storage, at, width(amountTapes));
+    }
+
     /**
      * Method comparing two commands.
      * Comparing origin, input character and current WorkTape-characters.
@@ -110,9 +350,10 @@ public class Command implements Comparable<Command> {
     public int compareTo(Command other) {
         if (this.origin != other.origin) {
             return 1;
-        } else if (this.inputChar != other.inputChar) {
+        } else if (this.getInputChar() != other.getInputChar()) {
             return 1;
-        } else if (!Arrays.equals(this.tapeChars, other.tapeChars)) {
+        } else if (!Arrays.equals(this.getTapeChars(),
+                other.getTapeChars())) {
             return 1;
         } else {
             return 0;
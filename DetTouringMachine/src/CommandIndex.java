@@ -0,0 +1,212 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Index of the Commands of a State, mapping the symbols read on all tapes to
+ * the position of the fitting Command in the Command list of the State.
+ *
+ * The codes of the read symbols (see Alphabet) are combined into a single
+ * long key by using them as digits to the base of the alphabet size. Thus
+ * only machines whose keys fit into a long can be indexed.
+ *
+ * Usually the keys are hashed. For hot States (see StateLayout) with few
+ * possible keys, the index is a direct table holding a position for every
+ * key instead, so a lookup never probes.
+ */
+public final class CommandIndex {
+
+    private static final long EMPTY = -1;
+
+    /**
+     * Maximum amount of slots of a direct table.
+     */
+    static final int DIRECT_LIMIT = 1 << 12;
+
+    //Amount of different symbols on a tape, the blank included
+    private final int radix;
+    //Keys of the slots, null for a direct table
+    private final long[] keys;
+    private final int[] positions;
+    private final int mask;
+
+    /**
+     * Constructor method for an empty index.
+     * @param capacity amount of slots, a power of two unless direct.
+     * @param radix amount of different symbols on a tape.
+     * @param direct true for a direct table with a slot for every key.
+     */
+    private CommandIndex(int capacity, int radix, boolean direct) {
+        this.radix = radix;
+        this.keys = direct ? null : new long[capacity];
+        this.positions = new int[capacity];
+        this.mask = capacity - 1;
+        if (direct) {
+            Arrays.fill(positions, -1);
+        } else {
+            Arrays.fill(keys, EMPTY);
+        }
+    }
+
+    /**
+     * Builds the index for the given Commands of a State, as a direct table
+     * if wanted and all keys fit into {@link #DIRECT_LIMIT} slots.
+     * @param commands the Commands of the State.
+     * @param radix amount of different symbols on a tape.
+     * @param direct true for preferring a direct table.
+     * @return the index, null if the Commands read too many tapes.
+     */
+    static CommandIndex build(List<Command> commands, int radix,
+                              boolean direct) {
+        if (!direct || commands.isEmpty()) {
+            return build(commands, radix);
+        }
+        long slots = 1;
+        for (int i = 0; i <= commands.get(0).getTapeCount(); i++) {
+            slots *= radix;
+            if (slots > DIRECT_LIMIT) {
+                return build(commands, radix);
+            }
+        }
+
+        CommandIndex toReturn = new CommandIndex((int) slots, radix, true);
+        for (int i = 0; i < commands.size(); i++) {
+            Command cmd = commands.get(i);
+            long key = toReturn.key(cmd.getInputChar(), cmd.getTapeChars());
+            //Foreign symbols never match, as for the hashed index
+            if (key != EMPTY && toReturn.positions[(int) key] < 0) {
+                toReturn.positions[(int) key] = i;
+            }
+        }
+        return toReturn;
+    }
+
+    /**
+     * Builds the index for the given Commands of a State. If multiple
+     * Commands fit the same symbols, the first one is indexed.
+     * @param commands the Commands of the State.
+     * @param radix amount of different symbols on a tape.
+     * @return the index, null if the Commands read too many tapes.
+     */
+    static CommandIndex build(List<Command> commands, int radix) {
+        if (!commands.isEmpty() && commands.get(0).getTapeCount() + 1
+                > maxSymbols(radix)) {
+            return null;
+        }
+
+        //At most half of the slots used
+        int capacity = Integer.highestOneBit(Math.max(commands.size(), 1)) * 4;
+        CommandIndex toReturn = new CommandIndex(capacity, radix, false);
+        for (int i = 0; i < commands.size(); i++) {
+            Command cmd = commands.get(i);
+            long key = toReturn.key(cmd.getInputChar(), cmd.getTapeChars());
+            if (key == EMPTY) {
+                return null;
+            }
+            toReturn.putIfAbsent(key, i);
+        }
+        return toReturn;
+    }
+
+    /**
+     * Computes the maximum amount of symbols fitting into one key.
+     * @param radix amount of different symbols on a tape.
+     * @return the amount of symbols.
+     */
+    static int maxSymbols(int radix) {
+        int toReturn = 0;
+        long max = 1;
+        while (max <= Long.MAX_VALUE / radix) {
+            max *= radix;
+            toReturn++;
+        }
+        return toReturn;
+    }
+
+    /**
+     * Combines the codes of the symbols read by a Command into its key.
+     * @param inputChar code of the symbol on the InputTape.
+     * @param tapeChars codes of the symbols on the WorkTapes.
+     * @return the key, -1 if a symbol is not part of the alphabet.
+     */
+    long key(byte inputChar, byte[] tapeChars) {
+        int code = inputChar;
+        long toReturn = code;
+        for (int i = 0; i < tapeChars.length && code >= 0; i++) {
+            code = tapeChars[i];
+            toReturn = toReturn * radix + code;
+        }
+        return code < 0 ? EMPTY : toReturn;
+    }
+
+    /**
+     * Combines the codes of the symbols currently under the heads of a
+     * Configuration into a key.
+     * @param conf the Configuration.
+     * @return the key, -1 if a symbol is not part of the alphabet.
+     */
+    long key(Configuration conf) {
+        Tape[] tapes = conf.getTapes();
+        int code = conf.getInputTape().getCurrent();
+        long toReturn = code;
+        for (int i = 0; i < tapes.length && code >= 0; i++) {
+            code = tapes[i].getCurrent();
+            toReturn = toReturn * radix + code;
+        }
+        return code < 0 ? EMPTY : toReturn;
+    }
+
+    /**
+     * @return true if the index is a direct table.
+     */
+    boolean isDirect() {
+        return keys == null;
+    }
+
+    /**
+     * Side method computing the first slot for a key.
+     * @param key the key.
+     * @return the slot.
+     */
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+    }
+
+    /**
+     * Side method adding a key, if it is not yet contained.
+     * @param key the key.
+     * @param position position of the Command in the list of the State.
+     */
+    private void putIfAbsent(long key, int position) {
+        int i = slot(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        positions[i] = position;
+    }
+
+    /**
+     * Searches the Command fitting the given key.
+     * @param key the combined read symbols.
+     * @return the position of the Command in the list of the State, -1 if
+     * there is none.
+     */
+    int find(long key) {
+        if (key == EMPTY) {
+            return -1;
+        } else if (keys == null) {
+            return positions[(int) key];
+        }
+        int i = slot(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                return positions[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+}
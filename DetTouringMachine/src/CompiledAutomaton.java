@@ -0,0 +1,484 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finite automaton deciding the acceptance of a machine that only reads its
+ * input from left to right and has no tapes deciding its Commands.
+ *
+ * Such a machine is a DFA in disguise: the State alone decides what happens
+ * with the next input symbol. Commands not moving the input head are
+ * followed at compile time until one consumes the symbol, so the automaton
+ * makes exactly one table lookup per symbol. The table holds for every
+ * State and symbol the next State, or the decision if the run halts. Runs
+ * that would loop forever without consuming input reject. The rows of the
+ * States are numbered in the order of the StateLayout of the machine, if
+ * it has one, so the rows executed one after another lie together.
+ */
+public final class CompiledAutomaton {
+
+    /**
+     * Minimum length of words checked in parallel.
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 20;
+
+    /**
+     * Length of the chunks of words checked in parallel.
+     */
+    static final int CHUNK_SIZE = 1 << 18;
+
+    //Symbols between two merges of runs in the same State
+    private static final int MERGE_INTERVAL = 64;
+
+    //Table entries deciding the run
+    private static final int REJECT = -1;
+    private static final int ACCEPT = -2;
+    //Marking entries not yet resolved and being resolved, to detect loops
+    private static final int UNRESOLVED = -3;
+    private static final int RESOLVING = -4;
+    //Codes read on the tapes, none as compiled machines have no tapes
+    private static final byte[] NO_TAPES = new byte[0];
+
+    //Columns per State: all codes followed by one for foreign characters
+    private final int width;
+    private final int[] table;
+    //Decision for the end of the input, for every State
+    private final boolean[] atEnd;
+    //Start State, or the decision if the run halts before reading
+    private final int start;
+    //Row of every State, indexed by ID
+    private final int[] rows;
+    //Columns of all byte values, for scanning bytes
+    private final int[] byteColumns = new int[256];
+    private final Alphabet alphabet;
+
+    /**
+     * Constructor method compiling the given machine.
+     * @param machine the machine, without tapes and input moves to the left.
+     */
+    private CompiledAutomaton(DetTuringMachine machine) {
+        this.alphabet = machine.getAlphabet();
+        this.width = alphabet.size() + 1;
+        int amount = machine.getStateCount();
+        this.table = new int[amount * width];
+        this.atEnd = new boolean[amount];
+        this.rows = new int[amount];
+        for (int state = 0; state < amount; state++) {
+            rows[state] = state;
+        }
+        if (machine.getLayout() != null) {
+            int[] order = machine.getLayout().getOrder();
+            for (int row = 0; row < amount; row++) {
+                rows[order[row]] = row;
+            }
+        }
+
+        Arrays.fill(table, UNRESOLVED);
+        //Slots of the chain of Commands currently followed
+        int[] chain = new int[amount];
+        for (int state = 0; state < amount; state++) {
+            for (int column = 0; column < width; column++) {
+                resolve(machine, state, column, chain);
+            }
+        }
+        decideAtEnd(machine, chain);
+        this.start = row(decided(machine, machine.getStartState()));
+
+        for (int i = 0; i < byteColumns.length; i++) {
+            byteColumns[i] = column(alphabet.encode((char) i));
+        }
+    }
+
+    /**
+     * Compiles a machine if it is equivalent to a finite automaton for
+     * checking acceptance, i.e., it has no tapes and no Command moves the
+     * input head to the left.
+     * @param machine the machine.
+     * @return the automaton, null if the machine cannot be compiled.
+     */
+    static CompiledAutomaton compile(DetTuringMachine machine) {
+        if (machine.getTapeCount() != 0) {
+            return null;
+        }
+        for (int i = 0; i < machine.getCommandCount(); i++) {
+            if (machine.getCommand(i).getInputPointerMove().getMoveInt() < 0) {
+                return null;
+            }
+        }
+        return new CompiledAutomaton(machine);
+    }
+
+    /**
+     * Side method mapping a code to its column.
+     * @param code the code of a symbol.
+     * @return the column.
+     */
+    private int column(byte code) {
+        return code < 0 ? width - 1 : code;
+    }
+
+    /**
+     * Side method mapping a State to itself, or its decision if runs halt
+     * in it.
+     * @param machine the machine.
+     * @param state the ID of the State.
+     * @return the State or the decision.
+     */
+    private static int decided(DetTuringMachine machine, int state) {
+        State current = machine.getState(state);
+        if (current.getStopClass() == 2) {
+            return ACCEPT;
+        } else if (current.getStopClass() != 0 || !current.canAccept()) {
+            return REJECT;
+        }
+        return state;
+    }
+
+    /**
+     * Side method mapping a State to its row, keeping decisions.
+     * @param state the ID of the State or a decision.
+     * @return the row or the decision.
+     */
+    private int row(int state) {
+        return state < 0 ? state : rows[state];
+    }
+
+    /**
+     * Side method resolving the table entry of a State and column by
+     * following the Commands until one moves the input head. All entries
+     * passed on the way get the same result, so every entry is followed
+     * only once.
+     * @param machine the machine.
+     * @param state the ID of the State.
+     * @param column the column of the symbol read.
+     * @param chain scratch array for the slots passed, one per State.
+     */
+    private void resolve(DetTuringMachine machine, int state, int column,
+                         int[] chain) {
+        int length = 0;
+        int current = state;
+        int toReturn;
+        while (true) {
+            int slot = rows[current] * width + column;
+            if (table[slot] == RESOLVING) {
+                //Looping without consuming the symbol
+                toReturn = REJECT;
+                break;
+            } else if (table[slot] != UNRESOLVED) {
+                toReturn = table[slot];
+                break;
+            }
+            table[slot] = RESOLVING;
+            chain[length++] = slot;
+
+            toReturn = decided(machine, current);
+            if (toReturn != current) {
+                break;
+            }
+            Command cmd = column == width - 1 ? null
+                    : firstFitting(machine.getState(current), (byte) column);
+            if (cmd == null) {
+                toReturn = REJECT;
+                break;
+            }
+            toReturn = decided(machine, cmd.getTarget());
+            if (cmd.getInputPointerMove().getMoveInt() > 0 || toReturn < 0) {
+                toReturn = row(toReturn);
+                break;
+            }
+            current = toReturn;
+        }
+        for (int i = 0; i < length; i++) {
+            table[chain[i]] = toReturn;
+        }
+    }
+
+    /**
+     * Side method deciding for every State a run reaching the end of the
+     * input in it, where only blanks follow. Like the table entries, every
+     * State is followed only once.
+     * @param machine the machine.
+     * @param chain scratch array for the States passed, one per State.
+     */
+    private void decideAtEnd(DetTuringMachine machine, int[] chain) {
+        int[] decisions = new int[atEnd.length];
+        Arrays.fill(decisions, UNRESOLVED);
+        for (int state = 0; state < decisions.length; state++) {
+            int length = 0;
+            int current = state;
+            int toReturn;
+            while (true) {
+                if (decisions[current] == RESOLVING) {
+                    //Looping on the blanks forever
+                    toReturn = REJECT;
+                    break;
+                } else if (decisions[current] != UNRESOLVED) {
+                    toReturn = decisions[current];
+                    break;
+                }
+                decisions[current] = RESOLVING;
+                chain[length++] = current;
+
+                toReturn = decided(machine, current);
+                if (toReturn != current) {
+                    break;
+                }
+                Command cmd = firstFitting(machine.getState(current),
+                        Alphabet.BLANK);
+                if (cmd == null) {
+                    toReturn = REJECT;
+                    break;
+                }
+                toReturn = decided(machine, cmd.getTarget());
+                if (toReturn < 0) {
+                    break;
+                }
+                current = toReturn;
+            }
+            for (int i = 0; i < length; i++) {
+                decisions[chain[i]] = toReturn;
+            }
+        }
+        for (int state = 0; state < decisions.length; state++) {
+            atEnd[rows[state]] = decisions[state] == ACCEPT;
+        }
+    }
+
+    /**
+     * Side method searching the first Command of a State reading the given
+     * symbol.
+     * @param state the State.
+     * @param code the code of the symbol.
+     * @return the Command, null if there is none.
+     */
+    private static Command firstFitting(State state, byte code) {
+        for (Command cmd : state.getCommands()) {
+            if (cmd.fits(code, NO_TAPES)) {
+                return cmd;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the machine accepts the given word.
+     * @param input the word.
+     * @return true if the word is accepted.
+     */
+    public boolean accepts(CharSequence input) {
+        int state = start;
+        for (int i = 0; i < input.length() && state >= 0; i++) {
+            state = table[state * width
+                    + column(alphabet.encode(input.charAt(i)))];
+        }
+        return state >= 0 ? atEnd[state] : state == ACCEPT;
+    }
+
+    /**
+     * Checks if the machine accepts the given word, given by one byte per
+     * character, e.g., ASCII.
+     * @param input the characters of the word.
+     * @return true if the word is accepted.
+     */
+    public boolean accepts(byte[] input) {
+        int state = start;
+        for (int i = 0; i < input.length && state >= 0; i++) {
+            state = table[state * width + byteColumns[input[i] & 0xFF]];
+        }
+        return state >= 0 ? atEnd[state] : state == ACCEPT;
+    }
+
+    /**
+     * Checks like {@link #accepts(CharSequence)}, splitting long words into
+     * chunks checked on all cores (see {@link #acceptsParallel(byte[])}).
+     * @param input the word.
+     * @return true if the word is accepted.
+     */
+    public boolean acceptsParallel(CharSequence input) {
+        if (input.length() < PARALLEL_THRESHOLD
+                || ForkJoinPool.getCommonPoolParallelism() < 2) {
+            return accepts(input);
+        }
+        return decide(ForkJoinPool.commonPool().invoke(
+                new Chunks(null, input, 0, input.length())));
+    }
+
+    /**
+     * Checks like {@link #accepts(byte[])}, splitting long words into
+     * chunks checked on all cores. As the State a chunk starts in is only
+     * known once the chunks before are done, every chunk is run from all
+     * States at once, giving the mapping of every start State to its end
+     * State. Runs from different States mostly end up in the same State
+     * after a few symbols and are continued as one. The mappings of all
+     * chunks are composed by a parallel reduction. Short words and single
+     * cores are checked sequentially.
+     * @param input the characters of the word.
+     * @return true if the word is accepted.
+     */
+    public boolean acceptsParallel(byte[] input) {
+        if (input.length < PARALLEL_THRESHOLD
+                || ForkJoinPool.getCommonPoolParallelism() < 2) {
+            return accepts(input);
+        }
+        return decide(ForkJoinPool.commonPool().invoke(
+                new Chunks(input, null, 0, input.length)));
+    }
+
+    /**
+     * Side method deciding a word by the mapping of the whole word.
+     * @param mapping the end State or decision for every start State.
+     * @return true if the word is accepted.
+     */
+    private boolean decide(int[] mapping) {
+        int state = start >= 0 ? mapping[start] : start;
+        return state >= 0 ? atEnd[state] : state == ACCEPT;
+    }
+
+    /**
+     * Task computing the mapping of a range of the word, splitting it in
+     * halves until it is short enough to run.
+     */
+    private final class Chunks extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] bytes;
+        private final CharSequence chars;
+        private final int from;
+        private final int to;
+
+        private Chunks(byte[] bytes, CharSequence chars, int from, int to) {
+            this.bytes = bytes;
+            this.chars = chars;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from <= CHUNK_SIZE) {
+                return map(bytes, chars, from, to);
+            }
+            int middle = from + (to - from) / 2;
+            Chunks first = new Chunks(bytes, chars, from, middle);
+            first.fork();
+            int[] second = new Chunks(bytes, chars, middle, to).compute();
+            return compose(first.join(), second);
+        }
+    }
+
+    /**
+     * Side method composing the mappings of two consecutive ranges.
+     * @param first the mapping of the first range.
+     * @param second the mapping of the second range.
+     * @return the mapping of both ranges.
+     */
+    private static int[] compose(int[] first, int[] second) {
+        int[] toReturn = new int[first.length];
+        for (int i = 0; i < first.length; i++) {
+            toReturn[i] = first[i] < 0 ? first[i] : second[first[i]];
+        }
+        return toReturn;
+    }
+
+    /**
+     * Side method running a range of the word from all States at once.
+     * @param bytes the characters of the word, or null.
+     * @param chars the word, if not given as bytes.
+     * @param from the first position of the range.
+     * @param to the position behind the range.
+     * @return the end State or decision for every start State.
+     */
+    private int[] map(byte[] bytes, CharSequence chars, int from, int to) {
+        int amount = atEnd.length;
+        //Distinct current States of the runs still running
+        int[] current = new int[amount];
+        //Position in current of every run, -1 once decided
+        int[] run = new int[amount];
+        int[] toReturn = new int[amount];
+        int distinct = amount;
+        for (int i = 0; i < amount; i++) {
+            current[i] = i;
+            run[i] = i;
+        }
+        //Scratch arrays for merging
+        int[] merged = new int[amount];
+        int[] moved = new int[amount];
+        Arrays.fill(merged, -1);
+
+        for (int i = from; i < to && distinct > 0; i++) {
+            int column = bytes != null ? byteColumns[bytes[i] & 0xFF]
+                    : column(alphabet.encode(chars.charAt(i)));
+            for (int j = 0; j < distinct; j++) {
+                if (current[j] >= 0) {
+                    current[j] = table[current[j] * width + column];
+                }
+            }
+
+            //Merging runs in the same State from time to time
+            if ((i - from) % MERGE_INTERVAL == MERGE_INTERVAL - 1) {
+                distinct = merge(current, run, distinct, merged, moved,
+                        toReturn);
+            }
+        }
+
+        for (int i = 0; i < amount; i++) {
+            if (run[i] >= 0) {
+                toReturn[i] = current[run[i]];
+            }
+        }
+        return toReturn;
+    }
+
+    /**
+     * Side method merging runs being in the same State, so they are
+     * continued as one. Decided runs are finished.
+     * @param current the distinct current States.
+     * @param run the position in current of every run, -1 if decided.
+     * @param distinct the amount of distinct current States.
+     * @param merged scratch array of -1 for every State, restored.
+     * @param moved scratch array for the new positions.
+     * @param result the decisions of the finished runs.
+     * @return the new amount of distinct current States.
+     */
+    private static int merge(int[] current, int[] run, int distinct,
+                             int[] merged, int[] moved, int[] result) {
+        int count = 0;
+        for (int j = 0; j < distinct; j++) {
+            int state = current[j];
+            if (state < 0) {
+                //Decisions are negative, positions are not
+                moved[j] = state;
+            } else if (merged[state] < 0) {
+                merged[state] = count;
+                moved[j] = count;
+                current[count++] = state;
+            } else {
+                moved[j] = merged[state];
+            }
+        }
+
+        for (int i = 0; i < run.length; i++) {
+            if (run[i] < 0) {
+                continue;
+            }
+            int position = moved[run[i]];
+            if (position < 0) {
+                result[i] = position;
+                run[i] = -1;
+            } else {
+                run[i] = position;
+            }
+        }
+        for (int j = 0; j < count; j++) {
+            merged[current[j]] = -1;
+        }
+        return count;
+    }
+
+    /**
+     * @return the amount of table entries.
+     */
+    public int getTableSize() {
+        return table.length;
+    }
+}
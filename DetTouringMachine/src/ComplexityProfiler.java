@@ -0,0 +1,551 @@
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Profiler measuring how the steps and the tape cells of a machine grow
+ * with the length of its input.
+ *
+ * For every length, the machine runs on a set of words, all words if there
+ * are not more than the requested samples, otherwise random ones and all
+ * words made of two blocks of one symbol each, like {@code a^k b^(n-k)}.
+ * Starting from the slowest of them, single symbols are changed as long as
+ * this makes the run slower, to find worse cases than sampling does. The
+ * words of a given corpus are run as they are. The lengths run in
+ * parallel. For every length
+ * the worst case of steps and of cells reached on the output and WorkTapes
+ * is kept, together with the word causing it. Then {@code a + b * f(n)} is
+ * fitted to the worst cases for every growth class {@code f}, and the class
+ * with the least squared relative error is reported. The Shell command
+ * "measure" profiles the current machine.
+ */
+public final class ComplexityProfiler {
+
+    /**
+     * Growth classes, from the slowest to the fastest growing.
+     */
+    public enum Growth {
+        /**
+         * Constant.
+         */
+        CONSTANT("1"),
+        /**
+         * Logarithmic.
+         */
+        LOGARITHMIC("log n"),
+        /**
+         * Linear.
+         */
+        LINEAR("n"),
+        /**
+         * Linearithmic.
+         */
+        LINEARITHMIC("n log n"),
+        /**
+         * Quadratic.
+         */
+        QUADRATIC("n^2"),
+        /**
+         * Cubic.
+         */
+        CUBIC("n^3"),
+        /**
+         * Exponential.
+         */
+        EXPONENTIAL("2^n");
+
+        private final String notation;
+
+        Growth(String notation) {
+            this.notation = notation;
+        }
+
+        /**
+         * @param n the length.
+         * @return the value of the growth function.
+         */
+        double apply(double n) {
+            switch (this) {
+                case CONSTANT :
+                    return 1;
+                case LOGARITHMIC :
+                    return Math.log(n + 1) / Math.log(2);
+                case LINEAR :
+                    return n;
+                case LINEARITHMIC :
+                    return n * Math.log(n + 1) / Math.log(2);
+                case QUADRATIC :
+                    return n * n;
+                case CUBIC :
+                    return n * n * n;
+                default :
+                    return Math.pow(2, n);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return notation;
+        }
+    }
+
+    /**
+     * Worst cases of all runs of one length.
+     */
+    public static final class Sample {
+        private final int length;
+        private int runs;
+        private long maxSteps = -1;
+        private double meanSteps;
+        private String worstTime;
+        private long maxCells = -1;
+        private String worstSpace;
+        //Runs stopped by the step limit
+        private int stopped;
+
+        private Sample(int length) {
+            this.length = length;
+        }
+
+        /**
+         * Side method adding a run.
+         * @param word the input.
+         * @param steps the steps of the run.
+         * @param cells the cells reached on the output and WorkTapes.
+         * @param halted false if the run reached the step limit.
+         */
+        private void add(String word, long steps, long cells,
+                         boolean halted) {
+            runs++;
+            meanSteps += (steps - meanSteps) / runs;
+            if (steps > maxSteps) {
+                maxSteps = steps;
+                worstTime = word;
+            }
+            if (cells > maxCells) {
+                maxCells = cells;
+                worstSpace = word;
+            }
+            if (!halted) {
+                stopped++;
+            }
+        }
+
+        /**
+         * @return the length of the inputs.
+         */
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * @return the most steps of a run.
+         */
+        public long getMaxSteps() {
+            return maxSteps;
+        }
+
+        /**
+         * @return the most cells reached by a run.
+         */
+        public long getMaxCells() {
+            return maxCells;
+        }
+    }
+
+    /**
+     * Growth class fitted to the worst cases, {@code a + b * f(n)}.
+     */
+    public static final class Fit {
+        private final Growth growth;
+        private final double a;
+        private final double b;
+        private final double error;
+
+        private Fit(Growth growth, double a, double b, double error) {
+            this.growth = growth;
+            this.a = a;
+            this.b = b;
+            this.error = error;
+        }
+
+        /**
+         * @return the growth class.
+         */
+        public Growth getGrowth() {
+            return growth;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%.4g + %.4g * %s", a, b,
+                    growth);
+        }
+    }
+
+    private final DetTuringMachine machine;
+    private final long maxSteps;
+
+    /**
+     * Constructor method for a profiler.
+     * @param machine the machine to profile.
+     * @param maxSteps the amount of steps a run is stopped at.
+     */
+    public ComplexityProfiler(DetTuringMachine machine, long maxSteps) {
+        this.machine = machine;
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * Profiles the machine on words over the given symbols for the given
+     * lengths.
+     * @param symbols the symbols of the words.
+     * @param lengths the lengths.
+     * @param samples the amount of words per length, all words if there
+     * are not more.
+     * @param seed the seed of the random words.
+     * @return the worst cases for every length, ordered by length.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public List<Sample> profile(String symbols, List<Integer> lengths,
+                                int samples, long seed)
+            throws InterruptedException {
+        Map<Integer, List<String>> words = new TreeMap<>();
+        for (int length : lengths) {
+            words.put(length, words(symbols, length, samples,
+                    new Random(seed + length)));
+        }
+        return profile(words, symbols, samples);
+    }
+
+    /**
+     * Profiles the machine on the given words, grouped by their length.
+     * @param words the words for every length.
+     * @return the worst cases for every length, ordered by length.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public List<Sample> profile(Map<Integer, List<String>> words)
+            throws InterruptedException {
+        return profile(words, "", 0);
+    }
+
+    /**
+     * Side method profiling the machine on the given words, then searching
+     * worse cases by changing single symbols.
+     * @param words the words for every length.
+     * @param symbols the symbols to change to, none for no search.
+     * @param budget the amount of runs of the search per length.
+     * @return the worst cases for every length, ordered by length.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private List<Sample> profile(Map<Integer, List<String>> words,
+                                 String symbols, int budget)
+            throws InterruptedException {
+        ExecutorService threads = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors());
+        try {
+            List<Callable<Sample>> tasks = new ArrayList<>();
+            for (Map.Entry<Integer, List<String>> entry : words.entrySet()) {
+                tasks.add(() -> search(measure(entry.getKey(),
+                        entry.getValue()), symbols, budget));
+            }
+            List<Sample> toReturn = new ArrayList<>();
+            for (Future<Sample> result : threads.invokeAll(tasks)) {
+                toReturn.add(result.get());
+            }
+            return toReturn;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Profiling failed!", e.getCause());
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    /**
+     * Side method running all words of one length.
+     * @param length the length.
+     * @param words the words.
+     * @return the worst cases.
+     */
+    private Sample measure(int length, List<String> words) {
+        Sample toReturn = new Sample(length);
+        for (String word : words) {
+            measure(word, toReturn);
+        }
+        return toReturn;
+    }
+
+    /**
+     * Side method running one word.
+     * @param word the word.
+     * @param sample the worst cases of its length.
+     * @return the steps of the run.
+     */
+    private long measure(String word, Sample sample) {
+        Configuration conf = machine.createConfiguration(
+                new InputTape(word, machine.getAlphabet()));
+        machine.run(conf, false, maxSteps);
+        long cells = 0;
+        for (Tape tape : conf.getTapes()) {
+            cells += tape.getUsedCells();
+        }
+        sample.add(word, conf.getSteps(), cells,
+                conf.getState().getStopClass() != 0
+                        || conf.getSteps() < maxSteps);
+        return conf.getSteps();
+    }
+
+    /**
+     * Side method changing single symbols of the slowest word as long as
+     * this makes the run slower.
+     * @param sample the worst cases of one length.
+     * @param symbols the symbols to change to.
+     * @param budget the amount of runs.
+     * @return the sample.
+     */
+    private Sample search(Sample sample, String symbols, int budget) {
+        if (sample.worstTime == null) {
+            return sample;
+        }
+        char[] word = sample.worstTime.toCharArray();
+        long steps = sample.maxSteps;
+        boolean improved = true;
+        while (improved && budget > 0 && steps < maxSteps) {
+            improved = false;
+            for (int i = 0; i < word.length && budget > 0; i++) {
+                char before = word[i];
+                for (int j = 0; j < symbols.length() && budget > 0; j++) {
+                    if (symbols.charAt(j) == before) {
+                        continue;
+                    }
+                    word[i] = symbols.charAt(j);
+                    budget--;
+                    long changed = measure(new String(word), sample);
+                    if (changed > steps) {
+                        steps = changed;
+                        before = word[i];
+                        improved = true;
+                    }
+                }
+                word[i] = before;
+            }
+        }
+        return sample;
+    }
+
+    /**
+     * Side method choosing the words of one length: all of them if there
+     * are not more than the samples, random ones otherwise.
+     * @param symbols the symbols of the words.
+     * @param length the length.
+     * @param samples the amount of words.
+     * @param random the random generator.
+     * @return the words.
+     */
+    static List<String> words(String symbols, int length, int samples,
+                              Random random) {
+        List<String> toReturn = new ArrayList<>();
+        double all = Math.pow(symbols.length(), length);
+        char[] word = new char[length];
+        if (all <= samples) {
+            for (long i = 0; i < (long) all; i++) {
+                long rest = i;
+                for (int j = length - 1; j >= 0; j--) {
+                    word[j] = symbols.charAt((int) (rest % symbols.length()));
+                    rest /= symbols.length();
+                }
+                toReturn.add(new String(word));
+            }
+            return toReturn;
+        }
+
+        //Two blocks of one symbol each
+        for (int x = 0; x < symbols.length(); x++) {
+            for (int y = 0; y < symbols.length(); y++) {
+                for (int k = 0; k <= length; k++) {
+                    String block = String.valueOf(symbols.charAt(x))
+                            .repeat(k) + String.valueOf(symbols.charAt(y))
+                            .repeat(length - k);
+                    toReturn.add(block);
+                }
+            }
+        }
+        for (int i = 0; i < samples; i++) {
+            for (int j = 0; j < length; j++) {
+                word[j] = symbols.charAt(random.nextInt(symbols.length()));
+            }
+            toReturn.add(new String(word));
+        }
+        return toReturn;
+    }
+
+    /**
+     * Fits every growth class to the given values by least squares and
+     * returns the one with the least squared relative error.
+     * @param lengths the lengths.
+     * @param values the worst case for every length.
+     * @return the best fitting growth class.
+     */
+    static Fit fit(int[] lengths, long[] values) {
+        Fit toReturn = null;
+        for (Growth growth : Growth.values()) {
+            //Exponential values beyond double are no candidates
+            if (growth == Growth.EXPONENTIAL
+                    && lengths[lengths.length - 1] > 1000) {
+                continue;
+            }
+            double sumX = 0;
+            double sumY = 0;
+            double sumXX = 0;
+            double sumXY = 0;
+            int count = lengths.length;
+            for (int i = 0; i < count; i++) {
+                double x = growth.apply(lengths[i]);
+                sumX += x;
+                sumY += values[i];
+                sumXX += x * x;
+                sumXY += x * values[i];
+            }
+            double divisor = count * sumXX - sumX * sumX;
+            double b = divisor == 0 ? 0 : (count * sumXY - sumX * sumY)
+                    / divisor;
+            double a = (sumY - b * sumX) / count;
+            //Growth classes must not shrink
+            if (b < 0) {
+                continue;
+            }
+
+            double error = 0;
+            for (int i = 0; i < count; i++) {
+                double expected = a + b * growth.apply(lengths[i]);
+                double relative = (values[i] - expected)
+                        / Math.max(1, values[i]);
+                error += relative * relative;
+            }
+            //Preferring the slower class unless clearly worse
+            if (toReturn == null || error < toReturn.error * 0.9
+                    - 1e-12) {
+                toReturn = new Fit(growth, a, b, error);
+            }
+        }
+        return toReturn;
+    }
+
+    /**
+     * Writes the profile as CSV, one line per length and the fitted classes
+     * as comments.
+     * @param samples the worst cases for every length.
+     * @param out the writer.
+     */
+    public static void writeCsv(List<Sample> samples, PrintWriter out) {
+        Fit[] fits = fits(samples);
+        out.println("# time: " + fits[0]);
+        out.println("# space: " + fits[1]);
+        out.println("length,runs,max_steps,mean_steps,max_cells,stopped,"
+                + "worst_time,worst_space");
+        for (Sample sample : samples) {
+            out.println(sample.length + "," + sample.runs + ","
+                    + sample.maxSteps + ","
+                    + String.format(Locale.ROOT, "%.2f", sample.meanSteps)
+                    + "," + sample.maxCells + "," + sample.stopped + ","
+                    + sample.worstTime + "," + sample.worstSpace);
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the profile as JSON.
+     * @param samples the worst cases for every length.
+     * @param out the writer.
+     */
+    public static void writeJson(List<Sample> samples, PrintWriter out) {
+        Fit[] fits = fits(samples);
+        out.println("{");
+        out.println("  \"time\": " + json(fits[0]) + ",");
+        out.println("  \"space\": " + json(fits[1]) + ",");
+        out.println("  \"lengths\": [");
+        for (int i = 0; i < samples.size(); i++) {
+            Sample sample = samples.get(i);
+            out.println("    {\"length\": " + sample.length
+                    + ", \"runs\": " + sample.runs
+                    + ", \"maxSteps\": " + sample.maxSteps
+                    + ", \"meanSteps\": "
+                    + String.format(Locale.ROOT, "%.2f", sample.meanSteps)
+                    + ", \"maxCells\": " + sample.maxCells
+                    + ", \"stopped\": " + sample.stopped
+                    + ", \"worstTime\": \"" + sample.worstTime
+                    + "\", \"worstSpace\": \"" + sample.worstSpace + "\"}"
+                    + (i + 1 < samples.size() ? "," : ""));
+        }
+        out.println("  ]");
+        out.println("}");
+        out.flush();
+    }
+
+    /**
+     * Side method printing a fit as JSON.
+     * @param fit the fit, may be null.
+     * @return the fit printed.
+     */
+    private static String json(Fit fit) {
+        if (fit == null) {
+            return "null";
+        }
+        return String.format(Locale.ROOT,
+                "{\"class\": \"%s\", \"a\": %.6g, \"b\": %.6g, "
+                        + "\"error\": %.6g}", fit.growth, fit.a, fit.b,
+                fit.error);
+    }
+
+    /**
+     * Side method fitting the steps and the cells of the samples.
+     * @param samples the worst cases for every length.
+     * @return the fit of the steps and the fit of the cells.
+     */
+    private static Fit[] fits(List<Sample> samples) {
+        int[] lengths = new int[samples.size()];
+        long[] steps = new long[samples.size()];
+        long[] cells = new long[samples.size()];
+        for (int i = 0; i < samples.size(); i++) {
+            lengths[i] = samples.get(i).length;
+            steps[i] = samples.get(i).maxSteps;
+            cells[i] = samples.get(i).maxCells;
+        }
+        if (samples.isEmpty()) {
+            return new Fit[2];
+        }
+        return new Fit[] {fit(lengths, steps), fit(lengths, cells)};
+    }
+
+    /**
+     * Side method collecting the symbols read on the InputTape by any
+     * Command, the default symbols of the words.
+     * @param machine the machine.
+     * @return the symbols.
+     */
+    static String inputSymbols(DetTuringMachine machine) {
+        boolean[] read = new boolean[machine.getAlphabet().size()];
+        for (int i = 0; i < machine.getCommandCount(); i++) {
+            byte code = machine.getCommand(i).getInputChar();
+            if (code > Alphabet.BLANK) {
+                read[code] = true;
+            }
+        }
+        StringBuilder toReturn = new StringBuilder();
+        for (int code = 1; code < read.length; code++) {
+            if (read[code]) {
+                toReturn.append(machine.getAlphabet().decode((byte) code));
+            }
+        }
+        return toReturn.toString();
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Configuration of a single run of a DetTuringMachine.
+ * Consists of the current State, the InputTape and the WorkTapes, the
+ * output tape being the first WorkTape. Every run works on its own
+ * Configuration, so a machine can run multiple words at the same time.
+ */
+public class Configuration {
+
+    private State state;
+    private final InputTape inputTape;
+    private final Tape[] tapes;
+    //Amount of Commands executed so far
+    private long steps;
+    //Scratch buffer for the codes under the heads of the WorkTapes
+    private final byte[] signs;
+
+    /**
+     * Constructor method creating the start Configuration for a filled
+     * InputTape.
+     * @param start the start-State of the machine.
+     * @param inputTape the InputTape.
+     * @param amountTapes amount of WorkTapes including the output tape.
+     */
+    Configuration(State start, InputTape inputTape, int amountTapes) {
+        this(start, inputTape, amountTapes, 0);
+    }
+
+    /**
+     * Constructor method creating the start Configuration for a filled
+     * InputTape, reserving storage on the WorkTapes.
+     * @param start the start-State of the machine.
+     * @param inputTape the InputTape.
+     * @param amountTapes amount of WorkTapes including the output tape.
+     * @param reserved amount of cells reserved in each direction on every
+     *                 WorkTape, 0 for the default.
+     */
+    Configuration(State start, InputTape inputTape, int amountTapes,
+                  int reserved) {
+        this(start, inputTape, amountTapes, reserved, 0);
+    }
+
+    /**
+     * Constructor method creating the start Configuration for a filled
+     * InputTape, with WorkTapes packing their codes if wanted (see
+     * PackedTape).
+     * @param start the start-State of the machine.
+     * @param inputTape the InputTape.
+     * @param amountTapes amount of WorkTapes including the output tape.
+     * @param reserved amount of cells reserved in each direction on every
+     *                 WorkTape, 0 for the default.
+     * @param packedBits bits per code on packed WorkTapes, 0 for WorkTapes
+     *                   storing one code per byte.
+     */
+    Configuration(State start, InputTape inputTape, int amountTapes,
+                  int reserved, int packedBits) {
+        this.state = start;
+        this.inputTape = inputTape;
+        this.tapes = new Tape[amountTapes];
+        for (int i = 0; i < amountTapes; i++) {
+            if (packedBits > 0) {
+                tapes[i] = new PackedTape(packedBits, reserved);
+            } else {
+                tapes[i] = reserved > 0 ? new Tape(reserved) : new Tape();
+            }
+        }
+        this.steps = 0;
+        this.signs = new byte[amountTapes];
+    }
+
+    /**
+     * Constructor method copying another Configuration including all of its
+     * Tapes, so both can be run on independently.
+     * @param other the Configuration to copy.
+     */
+    Configuration(Configuration other) {
+        this.state = other.state;
+        this.inputTape = new InputTape(other.inputTape);
+        this.tapes = new Tape[other.tapes.length];
+        for (int i = 0; i < tapes.length; i++) {
+            tapes[i] = other.tapes[i].copy();
+        }
+        this.steps = other.steps;
+        this.signs = new byte[tapes.length];
+    }
+
+    /**
+     * @return the amount of Commands executed so far.
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * Setting the amount of Commands executed so far.
+     * @param steps the amount of steps.
+     */
+    void setSteps(long steps) {
+        this.steps = steps;
+    }
+
+    /**
+     * @return true if the current State is an accepting State.
+     */
+    public boolean isAccepting() {
+        return state.getStopClass() == 2;
+    }
+
+    /**
+     * @return the current State.
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Setting the current State, e.g. after executing a Command.
+     * @param state the new State.
+     */
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    /**
+     * @return the InputTape of this Configuration.
+     */
+    public InputTape getInputTape() {
+        return inputTape;
+    }
+
+    /**
+     * @return all WorkTapes, the output tape first.
+     */
+    public Tape[] getTapes() {
+        return tapes;
+    }
+
+    /**
+     * Side method gathering the codes of all Symbols which are currently
+     * pointed at on all WorkTapes. The array is reused, so it is only valid
+     * until the next call.
+     * @return all codes gathered in an array.
+     */
+    public byte[] getCurrentSigns() {
+        for (int i = 0; i < tapes.length; i++) {
+            signs[i] = tapes[i].getCurrent();
+        }
+        return signs;
+    }
+}
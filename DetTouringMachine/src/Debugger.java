@@ -0,0 +1,326 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Debugger stepping a run of a machine forward and backward.
+ *
+ * Every executed Command is recorded in an undo journal of fixed-size
+ * entries: the previous State, the index of the Command and the symbols it
+ * overwrote on the WorkTapes. The head moves follow from the Command, so a
+ * step back restores the Configuration in constant time. Every
+ * {@code CHECKPOINT_INTERVAL} steps a copy of the Configuration is kept, so
+ * jumping far back only replays the steps behind the nearest checkpoint.
+ */
+public class Debugger {
+
+    /**
+     * Steps between two checkpoints.
+     */
+    static final int CHECKPOINT_INTERVAL = 1 << 14;
+
+    /**
+     * Reasons for a run of the debugger to end.
+     */
+    public enum Stop {
+        /**
+         * The requested step was reached.
+         */
+        REACHED,
+        /**
+         * A breakpoint was reached.
+         */
+        BREAKPOINT,
+        /**
+         * The machine halted, no more steps are possible.
+         */
+        HALTED,
+        /**
+         * The start of the run was reached.
+         */
+        START
+    }
+
+    private final DetTuringMachine machine;
+    private final int amountTapes;
+    private Configuration conf;
+
+    //Undo journal, one entry per executed step
+    private int[] previousStates = new int[1024];
+    private int[] commands = new int[1024];
+    private byte[] overwritten;
+
+    //Copies of the Configuration every CHECKPOINT_INTERVAL steps
+    private final ArrayList<Configuration> checkpoints = new ArrayList<>();
+
+    private final BitSet stateBreakpoints = new BitSet();
+    private final BitSet commandBreakpoints = new BitSet();
+
+    /**
+     * Constructor method starting a run on the given word.
+     * @param machine the machine to debug.
+     * @param input the word.
+     */
+    public Debugger(DetTuringMachine machine, String input) {
+        this.machine = machine;
+        this.conf = machine.createConfiguration(
+                new InputTape(input, machine.getAlphabet()));
+        this.amountTapes = conf.getTapes().length;
+        this.overwritten = new byte[previousStates.length * amountTapes];
+        checkpoints.add(new Configuration(conf));
+    }
+
+    /**
+     * @return the current Configuration. Not to be changed.
+     */
+    public Configuration getConfiguration() {
+        return conf;
+    }
+
+    /**
+     * @return the amount of steps executed to reach the current
+     * Configuration.
+     */
+    public long getStep() {
+        return conf.getSteps();
+    }
+
+    /**
+     * @return the Command executed by the next step, null if halted.
+     */
+    public Command getNextCommand() {
+        return machine.nextCommand(conf);
+    }
+
+    /**
+     * Breaking whenever the given State is reached.
+     * @param state the ID of the State.
+     */
+    public void breakOnState(int state) {
+        stateBreakpoints.set(state);
+    }
+
+    /**
+     * Breaking before the given Command is executed.
+     * @param command the index of the Command.
+     */
+    public void breakOnCommand(int command) {
+        commandBreakpoints.set(command);
+    }
+
+    /**
+     * Removing all breakpoints.
+     */
+    public void clearBreakpoints() {
+        stateBreakpoints.clear();
+        commandBreakpoints.clear();
+    }
+
+    /**
+     * Side method recording the journal entry and executing a Command.
+     * @param index the index of the Command fitting the current
+     *              Configuration.
+     */
+    private void execute(int index) {
+        Command cmd = machine.getCommand(index);
+        int step = (int) conf.getSteps();
+        if (step == previousStates.length) {
+            previousStates = Arrays.copyOf(previousStates, step * 2);
+            commands = Arrays.copyOf(commands, step * 2);
+            overwritten = Arrays.copyOf(overwritten, step * 2 * amountTapes);
+        }
+
+        Tape[] tapes = conf.getTapes();
+        previousStates[step] = conf.getState().getId();
+        commands[step] = index;
+        for (int i = 0; i < amountTapes; i++) {
+            overwritten[step * amountTapes + i] = tapes[i].getCurrent();
+        }
+
+        conf.setState(machine.getState(cmd.execute(conf.getInputTape(),
+                tapes)));
+        conf.setSteps(step + 1L);
+
+        if ((step + 1) % CHECKPOINT_INTERVAL == 0
+                && checkpoints.size() == (step + 1) / CHECKPOINT_INTERVAL) {
+            checkpoints.add(new Configuration(conf));
+        }
+    }
+
+    /**
+     * Side method undoing the latest step by its journal entry.
+     */
+    private void undo() {
+        int step = (int) conf.getSteps() - 1;
+        Command cmd = machine.getCommand(commands[step]);
+        Tape[] tapes = conf.getTapes();
+
+        for (int i = 0; i < amountTapes; i++) {
+            moveBack(tapes[i], cmd.getPointerMove(i));
+            tapes[i].restoreCurrent(overwritten[step * amountTapes + i]);
+        }
+        moveBack(conf.getInputTape(), cmd.getInputPointerMove());
+
+        conf.setState(machine.getState(previousStates[step]));
+        conf.setSteps(step);
+    }
+
+    /**
+     * Side method moving a pointer in the opposite direction of a move.
+     * @param tape the tape.
+     * @param move the move to undo.
+     */
+    private static void moveBack(Tape tape, Direction move) {
+        if (move.getMoveInt() > 0) {
+            tape.movePointerDown();
+        } else if (move.getMoveInt() < 0) {
+            tape.movePointerUp();
+        }
+    }
+
+    /**
+     * Executing the given amount of steps, ignoring breakpoints.
+     * @param amount of steps.
+     * @return REACHED or HALTED.
+     */
+    public Stop step(long amount) {
+        for (long i = 0; i < amount; i++) {
+            int next = machine.nextIndex(conf);
+            if (next < 0) {
+                return Stop.HALTED;
+            }
+            execute(next);
+        }
+        return Stop.REACHED;
+    }
+
+    /**
+     * Undoing the given amount of steps, ignoring breakpoints.
+     * @param amount of steps.
+     * @return REACHED or START.
+     */
+    public Stop back(long amount) {
+        for (long i = 0; i < amount; i++) {
+            if (conf.getSteps() == 0) {
+                return Stop.START;
+            }
+            undo();
+        }
+        return Stop.REACHED;
+    }
+
+    /**
+     * Jumping to the Configuration after the given step. Jumps further back
+     * than one checkpoint interval restart from the nearest checkpoint.
+     * @param target the step.
+     * @return REACHED, or HALTED if the run halts before the step.
+     */
+    public Stop jumpTo(long target) {
+        long current = conf.getSteps();
+        if (target < 0) {
+            target = 0;
+        }
+
+        if (target < current && current - target > CHECKPOINT_INTERVAL) {
+            int checkpoint = (int) Math.min(target / CHECKPOINT_INTERVAL,
+                    checkpoints.size() - 1);
+            conf = new Configuration(checkpoints.get(checkpoint));
+            current = conf.getSteps();
+        }
+
+        if (target < current) {
+            return back(current - target);
+        }
+        return step(target - current);
+    }
+
+    /**
+     * Executing steps until a breakpoint is reached or the machine halts.
+     * @return BREAKPOINT or HALTED.
+     */
+    public Stop resume() {
+        boolean first = true;
+        while (true) {
+            int next = machine.nextIndex(conf);
+            if (next < 0) {
+                return Stop.HALTED;
+            } else if (!first && isBreakpoint(next)) {
+                return Stop.BREAKPOINT;
+            }
+            execute(next);
+            first = false;
+        }
+    }
+
+    /**
+     * Undoing steps until a breakpoint is reached or the start of the run.
+     * @return BREAKPOINT or START.
+     */
+    public Stop reverse() {
+        while (conf.getSteps() > 0) {
+            undo();
+            if (isBreakpoint(machine.nextIndex(conf))) {
+                return Stop.BREAKPOINT;
+            }
+        }
+        return Stop.START;
+    }
+
+    /**
+     * Side method checking if the current Configuration is a breakpoint.
+     * @param next the index of the Command executed next, -1 if none.
+     * @return true if the current State or next Command is a breakpoint.
+     */
+    private boolean isBreakpoint(int next) {
+        return stateBreakpoints.get(conf.getState().getId())
+                || (next >= 0 && commandBreakpoints.get(next));
+    }
+
+    /**
+     * Prints the current Configuration: the step, the State, all tapes with
+     * the symbol under the head in brackets and the next Command.
+     * @return the Configuration printed.
+     */
+    public String describe() {
+        Alphabet alphabet = machine.getAlphabet();
+        StringBuilder toReturn = new StringBuilder();
+        toReturn.append("step ").append(conf.getSteps()).append(", state ")
+                .append(conf.getState().getId()).append('\n');
+        toReturn.append("input: ").append(describeTape(conf.getInputTape(),
+                alphabet)).append('\n');
+        Tape[] tapes = conf.getTapes();
+        for (int i = 0; i < tapes.length; i++) {
+            toReturn.append(i == 0 ? "output: " : "tape " + i + ": ")
+                    .append(describeTape(tapes[i], alphabet)).append('\n');
+        }
+
+        int next = machine.nextIndex(conf);
+        toReturn.append("next: ").append(next < 0 ? "halted" : next + " "
+                + machine.getCommand(next).commandToString());
+        return toReturn.toString();
+    }
+
+    /**
+     * Side method printing a tape with the symbol under the head in
+     * brackets. Blanks outside of the written part and the head are left
+     * out, since undone steps may leave the tape grown.
+     * @param tape the tape.
+     * @param alphabet the alphabet of the machine.
+     * @return the tape printed.
+     */
+    private static String describeTape(Tape tape, Alphabet alphabet) {
+        String content = tape.getTapeAsString(alphabet);
+        int head = tape.getPointerOffset();
+        char blank = alphabet.decode((byte) 0);
+        int start = 0;
+        while (start < head && content.charAt(start) == blank) {
+            start++;
+        }
+        int end = content.length();
+        while (end > head + 1 && content.charAt(end - 1) == blank) {
+            end--;
+        }
+        return content.substring(start, head) + "[" + content.charAt(head)
+                + "]" + content.substring(head + 1, end);
+    }
+}
@@ -1,25 +1,41 @@
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 /**
  * Implementation of a Deterministic Turing machine using the TuringMachine
  * interface.
- * Consists of States, one InputTape and WorkTapes.
+ * Consists of States and their Commands. The InputTape and WorkTapes of a
+ * run are kept in its own Configuration, so the machine itself is not
+ * changed by running words and can be used by multiple threads.
  */
 public class DetTuringMachine implements TuringMachine {
 
-    private InputTape inputTape;
     private final int amountTapes;
     private final State[] states;
-    //The current State of the TuringMachine
-    private State machineState;
-    private Tape[] tapes;
     private final int startID;
+    //Alphabet translating between the symbols and their codes
+    private final Alphabet alphabet;
+    //All Commands in the order they were added, indexed by Command index
+    private final ArrayList<Command> program = new ArrayList<>();
+    //Optional recorder of executed steps, null if tracing is disabled
+    private TraceRecorder traceRecorder;
+    //Statistics of all runs, exposed via JMX once registered
+    private final MachineStats stats = new MachineStats();
+    //Machine without the dead tapes used by check, null if none is dead
+    private DetTuringMachine checkMachine;
+    //Automaton used by check instead of running, null if not compilable
+    private CompiledAutomaton automaton;
+    //Layout of the States, null if none was profiled
+    private StateLayout layout;
+    //Compiler of the hot loops of runs, null if runs are only interpreted
+    private TraceJit jit;
+    //Bits per code on the WorkTapes of new runs, 0 if not packed
+    private volatile int packedBits;
 
     /**
-     * Constructor method.
+     * Constructor method for machines using the default alphabet.
      * @param states amount in this machine.
      * @param tapes amount of WorkTapes in this machine.
      * @param start ID of the start-State.
@@ -28,12 +44,26 @@ public class DetTuringMachine implements TuringMachine {
      */
     DetTuringMachine(int states, int tapes, int start, Set<Integer> stops,
                      Set<Integer> accepting) {
+        this(states, tapes, start, stops, accepting, Alphabet.DEFAULT);
+    }
+
+    /**
+     * Constructor method.
+     * @param states amount in this machine.
+     * @param tapes amount of WorkTapes in this machine.
+     * @param start ID of the start-State.
+     * @param stops Collection of halt-States.
+     * @param accepting Collection of accepting halt-States.
+     * @param alphabet Alphabet of the machine.
+     */
+    DetTuringMachine(int states, int tapes, int start, Set<Integer> stops,
+                     Set<Integer> accepting, Alphabet alphabet) {
+       this.alphabet = TransitionPool.SHARED.intern(alphabet);
        this.states = new State[states];
        this.createStates(states, start, stops, accepting);
        this.startID = start;
        this.amountTapes = (tapes + 1);
-       this.tapes = new Tape[amountTapes];
-       this.createTapes(tapes);
+       this.jit = new TraceJit(this, states);
    }
 
    /**
@@ -72,119 +102,226 @@ public class DetTuringMachine implements TuringMachine {
 
            states[i] = current;
        }
+   }
 
-       machineState = states[startID];
+   /**
+    * Side method creating the start Configuration of a run, i.e., the
+    * start-State, the InputTape filled with the given word/key and new
+    * empty WorkTapes.
+    * @param input
+    * @return the new Configuration.
+    */
+   Configuration createConfiguration(String input) {
+       return createConfiguration(new InputTape(input, alphabet));
    }
 
    /**
-     * Side method cleansing the current worktapes -if existing- and creating
-     * new empty worktapes.
-     * @param amount
-     */
-   private void createTapes(int amount) {
-       Tape current;
-       for (int i = 0; i <= amount; i++) {
-           current = new Tape();
-           tapes[i] = current;
-       }
+    * Side method creating the start Configuration of a run on the given
+    * InputTape.
+    * @param inputTape
+    * @return the new Configuration.
+    */
+   Configuration createConfiguration(InputTape inputTape) {
+       return createConfiguration(inputTape, 0);
    }
 
    /**
-    * Side method gathering all Symbols which are currently pointed at on
-    * all WorkTapes.
-    * @return all signs gathered in a character array.
+    * Side method creating the start Configuration of a run on the given
+    * InputTape, reserving storage on the WorkTapes.
+    * @param inputTape
+    * @param reserved amount of cells reserved in each direction on every
+    *                 WorkTape, 0 for the default.
+    * @return the new Configuration.
     */
-   private char[] getCurrentSigns() {
-       char[] toReturn = new char[tapes.length];
-       for (int i = 0; i < tapes.length; i++) {
-           toReturn[i] = tapes[i].getCurrent();
+   Configuration createConfiguration(InputTape inputTape, int reserved) {
+       if (traceRecorder != null) {
+           traceRecorder.clear();
        }
-       return toReturn;
+       return new Configuration(states[startID], inputTape, amountTapes,
+               reserved, packedBits);
    }
 
-    /**
-     * Side method filling the InputTape with a given word/key.
-     * @param input
-     */
-   private void loadInputTape(String input) {
-       inputTape = new InputTape(input);
-    }
+   /**
+    * Method searching the command to execute in the current Configuration,
+    * using the index of the current State if there is one.
+    * @param conf the Configuration of the run.
+    * @return the position of the fitting command in the list of the
+    * current State, -1 if there is none.
+    */
+   private int getFittingPosition(Configuration conf) {
+       State machineState = conf.getState();
+       CommandIndex index = machineState.getIndex();
+       if (index == null) {
+           return getFittingPosition(machineState, conf.getCurrentSigns(),
+                   conf.getInputTape().getCurrent());
+       }
+       return index.find(index.key(conf));
+   }
 
    /**
     * Method checking, if and which command has to be executed based on
-    * @param currentTapeChars array of all pointed-to symbols on WorkTapes
-    * @param inputChar the symbol read on the InputTape.
-    * @return the fitting command if existing/possible, null otherwise.
+    * @param machineState the current State.
+    * @param currentTapeChars array of all pointed-to codes on WorkTapes
+    * @param inputChar the code read on the InputTape.
+    * @return the position of the fitting command in the list of the State,
+    * -1 if there is none.
     */
-   private Command getFittingCmd(char[] currentTapeChars,
-                                 char inputChar) {
-       Command toReturn = null;
+   private int getFittingPosition(State machineState,
+                                  byte[] currentTapeChars, byte inputChar) {
        //All commands available for the current State gathered
        ArrayList<Command> stateCmds = machineState.getCommands();
 
-       //Setting up a dummy Command to compare and find out the right one.
-       Direction[] dummyDirArray = new Direction[0];
-       Direction dummyDir = null;
-       int targetDummy = 0;
-       char[] dummyNewChars = new char[0];
-       Command compareDummy = new Command(machineState.getId(), targetDummy,
-               inputChar, currentTapeChars, dummyNewChars,
-               dummyDirArray, dummyDir);
-
-       //Loop running through all
-       Iterator<Command> command = stateCmds.iterator();
-       while  (command.hasNext()) {
-           Command i = command.next();
-           //Comparison = 0 if Requirements are met, 1 otherwise
-           int test = i.compareTo(compareDummy);
-           if (test == 0) {
-               toReturn = i;
-               break;
+       //Loop running through all, without allocating an Iterator
+       for (int i = 0; i < stateCmds.size(); i++) {
+           if (stateCmds.get(i).fits(inputChar, currentTapeChars)) {
+               return i;
            }
        }
 
-       return toReturn;
+       return -1;
+   }
+
+   /**
+    * Returns the command executed next in the given Configuration.
+    * @param conf the Configuration.
+    * @return the command, null if the run halted or waits for more input.
+    */
+   Command nextCommand(Configuration conf) {
+       int toReturn = nextIndex(conf);
+       return toReturn < 0 ? null : program.get(toReturn);
    }
 
    /**
-    * Method called after running a word through the machine resetting all
-    * WorkTapes and the current State.
+    * Returns the index of the command executed next in the given
+    * Configuration, see {@link #getCommand(int)}.
+    * @param conf the Configuration.
+    * @return the index, -1 if the run halted or waits for more input.
     */
-   private void resetMachine() {
-       createTapes(amountTapes - 1);
-       machineState = states[startID];
-       return;
+   int nextIndex(Configuration conf) {
+       if (conf.getState().getStopClass() != 0
+               || conf.getInputTape().isBeyondKnownInput()) {
+           return -1;
+       }
+       int position = getFittingPosition(conf);
+       return position < 0 ? -1
+               : conf.getState().getProgramIndex(position);
    }
 
    /**
-    * Method running the machine until either no more command is available
-    * or a stop-State is reached.
+    * @param id the ID of a State.
+    * @return the State.
     */
-   private void runCheck() {
-       //Getting the current WorkTape symbols and the command to execute
-       char[] newTapeChars = getCurrentSigns();
-       Command currentCmd = getFittingCmd(newTapeChars,
-               inputTape.getCurrent());
+   State getState(int id) {
+       return states[id];
+   }
+
+   /**
+    * Method running the machine on the given Configuration until either no
+    * more command is available, a stop-State is reached or the next symbol
+    * of an incomplete input is needed.
+    * @param conf the Configuration of the run.
+    * @return true if the run halted, false if it waits for more input.
+    */
+   boolean run(Configuration conf) {
+       return run(conf, false);
+   }
+
+   /**
+    * Method running the machine like {@link #run(Configuration)}, but if
+    * wanted halting as soon as no accepting State can be reached anymore.
+    * Such a run ends in a non-accepting State, so only the acceptance of
+    * the run is kept.
+    * @param conf the Configuration of the run.
+    * @param rejectEarly true for halting once no accepting State can be
+    *                    reached.
+    * @return true if the run halted, false if it waits for more input.
+    */
+   boolean run(Configuration conf, boolean rejectEarly) {
+       return run(conf, rejectEarly, Long.MAX_VALUE);
+   }
+
+   /**
+    * Method running the machine like {@link #run(Configuration, boolean)},
+    * but stopping once the given amount of steps is reached. Hot loops are
+    * executed by their Traces (see TraceJit), unless runs are traced.
+    * @param conf the Configuration of the run.
+    * @param rejectEarly true for halting once no accepting State can be
+    *                    reached.
+    * @param maxSteps the amount of steps the run stops at.
+    * @return true if the run halted or stopped, false if it waits for more
+    * input.
+    */
+   boolean run(Configuration conf, boolean rejectEarly, long maxSteps) {
+       InputTape inputTape = conf.getInputTape();
+       Tape[] tapes = conf.getTapes();
+       long step = conf.getSteps();
+       //Recording of the hot loop currently run, null if none
+       TraceJit.Recording recording = null;
 
        //Iterating through the machine until no Command available or stop-State
-       while ((currentCmd != null) && (machineState.getStopClass() == 0)) {
-           //Returning the State-ID reached after executing the Command
-           int executeCmd = currentCmd.execute(inputTape, tapes);
-           machineState = states[executeCmd];
-
-           //Exiting if stop-State reached
-           if (machineState.getStopClass() == 1
-                   || machineState.getStopClass() == 2) {
-               return;
+       try {
+           while (conf.getState().getStopClass() == 0) {
+               //Rejecting as soon as no accepting State is reachable
+               if ((rejectEarly && !conf.getState().canAccept())
+                       || step >= maxSteps) {
+                   return true;
+               }
+
+               //Pausing until the symbol under the input head is known
+               if (inputTape.isBeyondKnownInput()) {
+                   return false;
+               }
+
+               int id = conf.getState().getId();
+               if (jit != null && traceRecorder == null && recording == null) {
+                   TraceJit.Trace trace = jit.traceAt(id);
+                   if (trace != null && (trace.canAccept() || !rejectEarly)) {
+                       long before = step;
+                       step = trace.execute(conf, step, maxSteps);
+                       //Leaving at the first step, the interpreter goes on
+                       if (step != before) {
+                           continue;
+                       }
+                   } else {
+                       recording = jit.enter(id);
+                   }
+               }
+
+               State currentState = conf.getState();
+               int position = getFittingPosition(conf);
+               if (position < 0) {
+                   return true;
+               }
+               Command currentCmd = currentState.getCommands().get(position);
+               if (traceRecorder != null) {
+                   traceRecorder.record(step, currentCmd,
+                           currentState.getProgramIndex(position));
+               }
+               if (recording != null && !recording.record(currentCmd)) {
+                   recording = null;
+               }
+               step++;
+
+               //Returning the State-ID reached after executing the Command
+               int executeCmd = currentCmd.execute(inputTape, tapes);
+               conf.setState(states[executeCmd]);
            }
-
-           //Setting up for next loop
-           newTapeChars = getCurrentSigns();
-           currentCmd = getFittingCmd(newTapeChars,
-                   inputTape.getCurrent());
+           return true;
+       } finally {
+           conf.setSteps(step);
        }
    }
 
+   /**
+    * Method reading the output of a run, the content of the first tape
+    * without leading and trailing blanks.
+    * @param conf the Configuration of the run.
+    * @return the output.
+    */
+   String getOutput(Configuration conf) {
+       return cleanupBlanks(conf.getTapes()[0].getTapeAsString(alphabet));
+   }
+
    /**
     * Side method removing all leading and trailing blank-symbols on the
     * given String.
@@ -223,18 +360,18 @@ public class DetTuringMachine implements TuringMachine {
    }
 
    /**
-    * Method validating if the given symbol/characer matches the pattern set
-    * up in the TuringMachine Interface.
+    * Method validating if the given symbol/characer matches the default
+    * alphabet set up in the TuringMachine Interface.
     * @param ch
     * @return yes if matching, false otherwise.
     */
    public static boolean isValidTapeChar(char ch) {
-       char first = TuringMachine.FIRST_CHAR;
-       char last = TuringMachine.LAST_CHAR;
-       char blank = TuringMachine.BLANK_CHAR;
-       String charsRex = "[" + first + "-" + last + "]";
-       Pattern pattern = Pattern.compile(charsRex);
-       return (pattern.matcher(String.valueOf(ch)).matches() || ch == blank);
+       return Alphabet.DEFAULT.isTapeSymbol(ch);
+   }
+
+   @Override
+   public Alphabet getAlphabet() {
+       return alphabet;
    }
 
    /**
@@ -270,10 +407,357 @@ public class DetTuringMachine implements TuringMachine {
                           char[] tapeChars, int targetState,
                           Direction inputTapeHeadMove, char[] newTapeChars,
                           Direction[] tapeHeadMoves) {
-       Command toAdd = new Command(sourceState, targetState, inputTapeChar,
-               tapeChars, newTapeChars, tapeHeadMoves, inputTapeHeadMove);
+       addCommand(sourceState, alphabet.encode(inputTapeChar),
+               encode(tapeChars), targetState, inputTapeHeadMove,
+               encode(newTapeChars), tapeHeadMoves);
+   }
+
+   /**
+    * Side method adding a Command given by the codes of its symbols.
+    * @param sourceState
+    * @param inputTapeChar code read on the InputTape.
+    * @param tapeChars codes read on the output and WorkTapes.
+    * @param targetState
+    * @param inputTapeHeadMove
+    * @param newTapeChars codes written on the output and WorkTapes.
+    * @param tapeHeadMoves
+    */
+   private void addCommand(int sourceState, byte inputTapeChar,
+                           byte[] tapeChars, int targetState,
+                           Direction inputTapeHeadMove, byte[] newTapeChars,
+                           Direction[] tapeHeadMoves) {
+       Command toAdd = TransitionPool.SHARED.command(sourceState,
+               targetState, inputTapeChar, tapeChars, newTapeChars,
+               tapeHeadMoves, inputTapeHeadMove, alphabet);
        State current = states[sourceState];
-       current.addCommand(toAdd);
+       current.addCommand(toAdd, program.size());
+       program.add(toAdd);
+   }
+
+   /**
+    * Side method translating symbols into their codes.
+    * @param symbols
+    * @return the codes of the symbols.
+    */
+   private byte[] encode(char[] symbols) {
+       byte[] toReturn = new byte[symbols.length];
+       for (int i = 0; i < symbols.length; i++) {
+           toReturn[i] = alphabet.encode(symbols[i]);
+       }
+       return toReturn;
+   }
+
+   /**
+    * Applies a profiled layout: the indexes built afterwards are direct
+    * for the hot States, and the automaton numbers its rows in the order
+    * of the layout (see StateLayout). Called once all Commands are added,
+    * before the indexes are built.
+    * @param layout the layout, null for none.
+    */
+   void applyLayout(StateLayout layout) {
+       this.layout = layout;
+   }
+
+   /**
+    * @return the layout of the States, null if there is none.
+    */
+   StateLayout getLayout() {
+       return layout;
+   }
+
+   /**
+    * Builds the indexes of the Commands of all States. Called once all
+    * Commands are added. States with the same Commands as in the given
+    * previous version of the machine using the same alphabet share its
+    * indexes instead. Hot States of the layout get direct indexes.
+    * @param previous the previous version of the machine, may be null.
+    * @return the amount of States whose index was built.
+    */
+   int buildIndexes(DetTuringMachine previous) {
+       program.trimToSize();
+       int built = 0;
+       boolean sameAlphabet = previous != null
+               && previous.alphabet.toString().equals(alphabet.toString());
+       for (int i = 0; i < states.length; i++) {
+           State old = null;
+           if (sameAlphabet && i < previous.states.length) {
+               old = previous.states[i];
+           }
+           boolean direct = layout != null && layout.isHot(i);
+           if (states[i].buildIndex(old, alphabet.size(), direct)) {
+               built++;
+           }
+           states[i].share(TransitionPool.SHARED, alphabet.size());
+       }
+       return built;
+   }
+
+   /**
+    * Marks the States from which an accepting State can be reached in the
+    * graph of all Commands. Runs checking acceptance halt as soon as they
+    * leave these States. Called once all Commands are added.
+    * @return the amount of States no accepting State can be reached from.
+    */
+   int markAcceptReachable() {
+       //Sources of all Commands leading into a State
+       ArrayList<ArrayList<Integer>> sources = new ArrayList<>();
+       for (int i = 0; i < states.length; i++) {
+           sources.add(new ArrayList<>());
+       }
+       for (Command cmd : program) {
+           //Commands of stop-States are never executed
+           if (states[cmd.getOrigin()].getStopClass() == 0) {
+               sources.get(cmd.getTarget()).add(cmd.getOrigin());
+           }
+       }
+
+       boolean[] reachable = new boolean[states.length];
+       ArrayDeque<Integer> toVisit = new ArrayDeque<>();
+       for (State state : states) {
+           if (state.getStopClass() == 2) {
+               reachable[state.getId()] = true;
+               toVisit.add(state.getId());
+           }
+       }
+       while (!toVisit.isEmpty()) {
+           for (int source : sources.get(toVisit.poll())) {
+               if (!reachable[source]) {
+                   reachable[source] = true;
+                   toVisit.add(source);
+               }
+           }
+       }
+
+       int toReturn = 0;
+       for (int i = 0; i < states.length; i++) {
+           states[i].setCanAccept(reachable[i]);
+           if (!reachable[i]) {
+               toReturn++;
+           }
+       }
+       return toReturn;
+   }
+
+   /**
+    * Builds the machine used by check, leaving out all tapes whose content
+    * never decides which Command is executed (see TapeLiveness). Commands
+    * not writing or moving them anymore collapse into one, Commands that
+    * can never fit are dropped. Called once all Commands are added.
+    * @return the amount of dead tapes left out.
+    */
+   int eliminateDeadTapes() {
+       boolean[] dead = TapeLiveness.findDeadTapes(this, amountTapes);
+       int[] live = new int[amountTapes];
+       int amountLive = 0;
+       for (int i = 0; i < amountTapes; i++) {
+           if (!dead[i]) {
+               live[amountLive++] = i;
+           }
+       }
+       if (amountLive == amountTapes) {
+           checkMachine = null;
+           return 0;
+       }
+
+       //The WorkTape count excludes the output tape, which may be dead
+       DetTuringMachine toBuild = new DetTuringMachine(states.length,
+               amountLive - 1, startID, statesOfClass(1), statesOfClass(2),
+               alphabet);
+
+       boolean[][] readable
+               = TapeLiveness.readableSymbols(this, amountTapes);
+       for (State state : states) {
+           for (Command cmd : state.getCommands()) {
+               if (!TapeLiveness.canFit(cmd, readable)) {
+                   continue;
+               }
+               byte[] tapeChars = new byte[amountLive];
+               byte[] newChars = new byte[amountLive];
+               Direction[] moves = new Direction[amountLive];
+               for (int i = 0; i < amountLive; i++) {
+                   tapeChars[i] = cmd.getTapeChar(live[i]);
+                   newChars[i] = cmd.getNewChar(live[i]);
+                   moves[i] = cmd.getPointerMove(live[i]);
+               }
+               toBuild.addCommand(state.getId(), cmd.getInputChar(),
+                       tapeChars, cmd.getTarget(), cmd.getInputPointerMove(),
+                       newChars, moves);
+           }
+       }
+       toBuild.applyLayout(layout);
+       toBuild.buildIndexes(null);
+       toBuild.markAcceptReachable();
+       checkMachine = toBuild;
+       return amountTapes - amountLive;
+   }
+
+   /**
+    * Side method collecting the IDs of all halt-States or of all accepting
+    * States.
+    * @param stopClass 1 for all halt-States, 2 for the accepting ones.
+    * @return the IDs.
+    */
+   private Set<Integer> statesOfClass(int stopClass) {
+       Set<Integer> toReturn = new HashSet<>();
+       for (State state : states) {
+           if (state.getStopClass() >= stopClass) {
+               toReturn.add(state.getId());
+           }
+       }
+       return toReturn;
+   }
+
+   /**
+    * Creates a new machine with the same States and Commands, but none of
+    * the indexes, analyses and compiled forms built once all Commands are
+    * added.
+    * @return the new machine.
+    */
+   DetTuringMachine copyProgram() {
+       DetTuringMachine toReturn = new DetTuringMachine(states.length,
+               amountTapes - 1, startID, statesOfClass(1), statesOfClass(2),
+               alphabet);
+       for (Command cmd : program) {
+           toReturn.addCommand(cmd.getOrigin(), cmd.getInputChar(),
+                   cmd.getTapeChars(), cmd.getTarget(),
+                   cmd.getInputPointerMove(), cmd.getNewChars(),
+                   cmd.getPointerMoves());
+       }
+       toReturn.packedBits = packedBits;
+       return toReturn;
+   }
+
+   /**
+    * Turns off the tracing compiler, so that all runs are interpreted
+    * Command by Command (see TraceJit). Called before the machine is used.
+    */
+   void disableTraceJit() {
+       jit = null;
+   }
+
+   /**
+    * Compiles the machine used by check into a finite automaton, if all its
+    * tapes are dead and its input head never moves left (see
+    * CompiledAutomaton). Called after {@link #eliminateDeadTapes()}.
+    * @return true if the machine was compiled.
+    */
+   boolean compileAutomaton() {
+       automaton = checkMachine == null ? null
+               : CompiledAutomaton.compile(checkMachine);
+       return automaton != null;
+   }
+
+   /**
+    * @return the automaton used by check, null if there is none.
+    */
+   public CompiledAutomaton getAutomaton() {
+       return automaton;
+   }
+
+   /**
+    * Enables tracing of all following runs into the given recorder. The
+    * recorder is cleared at the start of every run, so it holds the steps of
+    * the latest run only. It is not synchronized, so tracing is meant for
+    * one run at a time.
+    * @param recorder the recorder to use, null to disable tracing.
+    */
+   public void setTraceRecorder(TraceRecorder recorder) {
+       this.traceRecorder = recorder;
+   }
+
+   /**
+    * Enables storing the WorkTapes of all following runs packed with as
+    * few bits per code as the alphabet needs (see PackedTape). Meant for
+    * machines whose runs need a lot of tape, accessing a cell of a packed
+    * tape takes a few more instructions.
+    * @param packed true for packed WorkTapes, false for one byte per cell.
+    */
+   public void setPackedTapes(boolean packed) {
+       this.packedBits = packed ? PackedTape.bitsFor(alphabet) : 0;
+       if (checkMachine != null) {
+           checkMachine.setPackedTapes(packed);
+       }
+   }
+
+   /**
+    * @return the recorder currently tracing the runs, null if disabled.
+    */
+   public TraceRecorder getTraceRecorder() {
+       return traceRecorder;
+   }
+
+   /**
+    * @return the statistics of all runs of this machine.
+    */
+   public MachineStats getStats() {
+       return stats;
+   }
+
+   /**
+    * @return the amount of Commands in the Turing program.
+    */
+   public int getCommandCount() {
+       return program.size();
+   }
+
+   /**
+    * @return the amount of WorkTapes, the output tape included.
+    */
+   int getTapeCount() {
+       return amountTapes;
+   }
+
+   /**
+    * @return the ID of the start-State.
+    */
+   int getStartState() {
+       return startID;
+   }
+
+   /**
+    * @return the amount of States.
+    */
+   public int getStateCount() {
+       return states.length;
+   }
+
+   /**
+    * Returns the Command with the given index, i.e., the Command added as
+    * the index-th one to the Turing program. Commands are shared by all
+    * machines, so equal Commands of a program are the same instance.
+    * @param index of the Command.
+    * @return the Command, null if there is no such Command.
+    */
+   public Command getCommand(int index) {
+       if (index < 0 || index >= program.size()) {
+           return null;
+       }
+       return program.get(index);
+   }
+
+   /**
+    * Side method committing the Flight Recorder event of a finished run, if
+    * recording is enabled.
+    * @param event the event begun with the run.
+    * @param mode "check" or "simulate".
+    * @param conf the Configuration the run ended in.
+    * @param outcome the result of the run.
+    */
+   private void commitRun(MachineRunEvent event, String mode,
+                          Configuration conf, String outcome) {
+       if (event.shouldCommit()) {
+           event.machine = stats.getName();
+           event.mode = mode;
+           //Runs of the automaton have no Configuration
+           if (conf != null) {
+               event.steps = conf.getSteps();
+               for (Tape tape : conf.getTapes()) {
+                   event.tapeCells += tape.getUsedCells();
+               }
+           }
+           event.outcome = outcome;
+           event.commit();
+       }
    }
 
    @Override
@@ -283,42 +767,54 @@ public class DetTuringMachine implements TuringMachine {
            return  "";
        }
 
-       loadInputTape(input);
-       char[] tapeChars = getCurrentSigns();
-       Command currentCmd = getFittingCmd(tapeChars, inputTape.getCurrent());
-
-       //Run machine until Stop or no Cmd
-       while ((machineState.getStopClass() == 0) && (currentCmd != null)) {
-           int executeCmd = currentCmd.execute(inputTape, tapes);
-           machineState = states[executeCmd];
-           tapeChars = getCurrentSigns();
-           currentCmd = getFittingCmd(tapeChars, inputTape.getCurrent());
+       MachineRunEvent event = new MachineRunEvent();
+       event.begin();
+       long start = stats.runStarted();
+       Configuration conf = null;
+       String toReturn;
+       try {
+           conf = createConfiguration(input);
+           run(conf);
+           toReturn = getOutput(conf);
+       } finally {
+           stats.runFinished(start, conf == null ? 0 : conf.getSteps());
        }
-
-       String toReturn = cleanupBlanks(tapes[0].getTapeAsString());
-       resetMachine();
+       commitRun(event, "simulate", conf, toReturn);
        return toReturn;
    }
 
    @Override
    public boolean check(String input) {
-       loadInputTape(input);
-
-       //Start state = AcceptanceState?
-       if (machineState.getStopClass() == 2) {
-           return true;
-       } else {
-           runCheck();
-       }
-
-       //Reached State AcceptanceState?
-       if (machineState.getStopClass() == 2) {
-           resetMachine();
-           return true;
-       } else {
-           resetMachine();
-           return false;
+       MachineRunEvent event = new MachineRunEvent();
+       event.begin();
+       long start = stats.runStarted();
+       Configuration conf = null;
+       boolean accepted;
+       try {
+           if (automaton != null && traceRecorder == null) {
+               event.automaton = true;
+               accepted = automaton.acceptsParallel(input);
+           } else {
+               //Tracing shows the Commands of this machine, so only without
+               //it the dead tapes are left out
+               DetTuringMachine runner = checkMachine != null
+                       && traceRecorder == null ? checkMachine : this;
+               conf = runner.createConfiguration(input);
+
+               //Start state = AcceptanceState? Otherwise running until halting
+               if (!conf.isAccepting()) {
+                   runner.run(conf, true);
+               }
+
+               //Reached State AcceptanceState?
+               accepted = conf.isAccepting();
+           }
+       } finally {
+           //Runs of the automaton execute no steps of the machine
+           stats.runFinished(start, conf == null ? 0 : conf.getSteps());
        }
+       commitRun(event, "check", conf, accepted ? "accept" : "reject");
+       return accepted;
    }
 
    @Override
@@ -0,0 +1,450 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Checker comparing two machines on all words up to a given length, or on
+ * a random sample of them, for example an optimized or regenerated machine
+ * against the original one.
+ *
+ * For every word, both machines are checked and simulated, and the results
+ * must be the same. The words are walked on a fork-join pool as a tree of
+ * prefixes, like in LanguageEnumerator: the four runs (check and simulate
+ * of each machine) go along every prefix only once and are copied for
+ * every following symbol. Runs halting before the end of a prefix fix
+ * their result for all words below it; once all four are fixed and agree,
+ * the words below are not run at all.
+ *
+ * Both runs of every word get the same step budget. Words on which a run
+ * reaches it cannot be compared and are counted as undecided. Once a
+ * difference is found, the walk stops below all prefixes as long as it, so
+ * only the few shorter words are still run and a shortest difference is
+ * reported. The Shell command "equivalence" compares the current machine
+ * with another loaded one.
+ */
+public final class EquivalenceChecker {
+
+    /**
+     * Word on which the two machines differ.
+     */
+    public static final class Counterexample {
+        private final String word;
+        private final String operation;
+        private final String first;
+        private final String second;
+
+        private Counterexample(String word, String operation, String first,
+                               String second) {
+            this.word = word;
+            this.operation = operation;
+            this.first = first;
+            this.second = second;
+        }
+
+        /**
+         * @return the word.
+         */
+        public String getWord() {
+            return word;
+        }
+
+        /**
+         * @return "check" or "simulate".
+         */
+        public String getOperation() {
+            return operation;
+        }
+
+        /**
+         * @return the result of the first machine.
+         */
+        public String getFirst() {
+            return first;
+        }
+
+        /**
+         * @return the result of the second machine.
+         */
+        public String getSecond() {
+            return second;
+        }
+
+        /**
+         * @param other another Counterexample.
+         * @return true if this one has a shorter or, for the same length, a
+         * smaller word.
+         */
+        private boolean isBefore(Counterexample other) {
+            return word.length() != other.word.length()
+                    ? word.length() < other.word.length()
+                    : word.compareTo(other.word) < 0;
+        }
+
+        @Override
+        public String toString() {
+            return operation + "(\"" + word + "\"): " + first + " vs. "
+                    + second;
+        }
+    }
+
+    /**
+     * Node of the trie of sampled words.
+     */
+    private static final class Node {
+        private final Map<Character, Node> children = new TreeMap<>();
+        private boolean word;
+        //Amount of words ending in or below this node
+        private long words;
+    }
+
+    //Runs of every word: check and simulate of both machines
+    private static final int CHECK_FIRST = 0;
+    private static final int CHECK_SECOND = 1;
+    private static final int SIMULATE_FIRST = 2;
+    private static final int SIMULATE_SECOND = 3;
+    private static final int RUNS = 4;
+
+    private final DetTuringMachine first;
+    private final DetTuringMachine second;
+    private final String symbols;
+    private final long maxSteps;
+    private final LongAdder compared = new LongAdder();
+    private final LongAdder undecided = new LongAdder();
+
+    /**
+     * Constructor method for a checker.
+     * @param first the first machine.
+     * @param second the second machine.
+     * @param symbols the symbols of the words.
+     * @param maxSteps the step budget of every run.
+     */
+    public EquivalenceChecker(DetTuringMachine first, DetTuringMachine second,
+                              String symbols, long maxSteps) {
+        this.first = first;
+        this.second = second;
+        this.symbols = symbols;
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * @return the amount of words compared by the last walk.
+     */
+    public long getCompared() {
+        return compared.sum();
+    }
+
+    /**
+     * @return the amount of words of the last walk on which a run reached
+     * the step budget.
+     */
+    public long getUndecided() {
+        return undecided.sum();
+    }
+
+    /**
+     * Compares the machines on all words up to the given length.
+     * @param maxLength the maximum length of the words.
+     * @param pool the pool walking the words.
+     * @return a word on which the machines differ, null if there is none.
+     * @throws IllegalArgumentException If the maximum length is negative.
+     */
+    public Counterexample compareAll(int maxLength, ForkJoinPool pool) {
+        checkLength(maxLength);
+        return compare(null, maxLength, pool);
+    }
+
+    /**
+     * Compares the machines on random words up to the given length, with
+     * lengths evenly distributed.
+     * @param maxLength the maximum length of the words.
+     * @param samples the amount of words.
+     * @param seed the seed of the random words.
+     * @param pool the pool walking the words.
+     * @return a word on which the machines differ, null if there is none.
+     * @throws IllegalArgumentException If the maximum length is negative.
+     */
+    public Counterexample compareSample(int maxLength, int samples,
+                                       long seed, ForkJoinPool pool) {
+        checkLength(maxLength);
+        Random random = new Random(seed);
+        Node root = new Node();
+        for (int i = 0; i < samples; i++) {
+            int length = random.nextInt(maxLength + 1);
+            List<Node> path = new ArrayList<>(length + 1);
+            Node current = root;
+            path.add(current);
+            for (int j = 0; j < length; j++) {
+                current = current.children.computeIfAbsent(
+                        symbols.charAt(random.nextInt(symbols.length())),
+                        symbol -> new Node());
+                path.add(current);
+            }
+            //Counting every word once
+            if (!current.word) {
+                current.word = true;
+                for (Node node : path) {
+                    node.words++;
+                }
+            }
+        }
+        return compare(root, maxLength, pool);
+    }
+
+    /**
+     * Side method rejecting a negative maximum length, which the walk would
+     * never reach.
+     * @param maxLength the maximum length of the words.
+     */
+    private static void checkLength(int maxLength) {
+        if (maxLength < 0) {
+            throw new IllegalArgumentException("Negative length!");
+        }
+    }
+
+    /**
+     * Side method walking the words.
+     * @param root the trie of the words, null for all words.
+     * @param maxLength the maximum length of the words.
+     * @param pool the pool walking the words.
+     * @return a word on which the machines differ, null if there is none.
+     */
+    private Counterexample compare(Node root, int maxLength,
+                                   ForkJoinPool pool) {
+        compared.reset();
+        undecided.reset();
+        AtomicReference<Counterexample> found = new AtomicReference<>();
+        Configuration[] confs = new Configuration[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            confs[run] = machineOf(run).createConfiguration(
+                    InputTape.ofPrefix(new byte[0]));
+        }
+        pool.invoke(new Walk(root, "", maxLength, confs, new String[RUNS],
+                new boolean[RUNS], found));
+        return found.get();
+    }
+
+    /**
+     * Side method choosing the machine of a run.
+     * @param run the run.
+     * @return the machine.
+     */
+    private DetTuringMachine machineOf(int run) {
+        return run == CHECK_FIRST || run == SIMULATE_FIRST ? first : second;
+    }
+
+    /**
+     * Task comparing the words with a given prefix.
+     */
+    private final class Walk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        //Trie node of the prefix, null if all words below are walked
+        private final Node node;
+        private final String prefix;
+        private final int maxLength;
+        //Configurations of the runs still waiting for input
+        private final Configuration[] confs;
+        //Results of the runs halted within the prefix, null if over budget
+        private final String[] results;
+        private final boolean[] halted;
+        private final AtomicReference<Counterexample> found;
+
+        private Walk(Node node, String prefix, int maxLength,
+                     Configuration[] confs, String[] results,
+                     boolean[] halted,
+                     AtomicReference<Counterexample> found) {
+            this.node = node;
+            this.prefix = prefix;
+            this.maxLength = maxLength;
+            this.confs = confs;
+            this.results = results;
+            this.halted = halted;
+            this.found = found;
+        }
+
+        @Override
+        protected void compute() {
+            //Only shorter words than a difference found are still wanted
+            Counterexample known = found.get();
+            if (known != null && prefix.length() >= known.word.length()) {
+                return;
+            }
+
+            boolean allHalted = true;
+            for (int run = 0; run < RUNS; run++) {
+                if (!halted[run] && machineOf(run).run(confs[run],
+                        run < SIMULATE_FIRST, maxSteps)) {
+                    halted[run] = true;
+                    results[run] = resultOf(run, confs[run]);
+                    confs[run] = null;
+                }
+                allHalted &= halted[run];
+            }
+
+            //Same results for all words below, except the special empty one
+            if (allHalted && !prefix.isEmpty()) {
+                long amount = node == null
+                        ? amountBelow(prefix.length()) : node.words;
+                if (results[CHECK_FIRST] == null
+                        || results[CHECK_SECOND] == null
+                        || results[SIMULATE_FIRST] == null
+                        || results[SIMULATE_SECOND] == null) {
+                    undecided.add(amount);
+                    return;
+                }
+                compared.add(amount);
+                compareResults(node == null ? prefix : firstWord(), results);
+                return;
+            }
+
+            //The word ending here has only blanks behind the prefix
+            if (node == null || node.word) {
+                String[] complete = results.clone();
+                for (int run = 0; run < RUNS; run++) {
+                    if (!halted[run]) {
+                        Configuration conf = new Configuration(confs[run]);
+                        conf.getInputTape().completeInput();
+                        machineOf(run).run(conf, run < SIMULATE_FIRST,
+                                maxSteps);
+                        complete[run] = resultOf(run, conf);
+                    }
+                }
+                //Simulating the empty input returns it without running
+                if (prefix.isEmpty()) {
+                    complete[SIMULATE_FIRST] = "";
+                    complete[SIMULATE_SECOND] = "";
+                }
+                if (complete[CHECK_FIRST] == null
+                        || complete[CHECK_SECOND] == null
+                        || complete[SIMULATE_FIRST] == null
+                        || complete[SIMULATE_SECOND] == null) {
+                    undecided.increment();
+                } else {
+                    compared.increment();
+                    compareResults(prefix, complete);
+                }
+            }
+            if (prefix.length() == maxLength) {
+                return;
+            }
+
+            //Forking for every symbol, the last one reusing the originals
+            List<Walk> children = new ArrayList<>();
+            List<Character> next = new ArrayList<>();
+            List<Node> nodes = new ArrayList<>();
+            if (node == null) {
+                for (int i = 0; i < symbols.length(); i++) {
+                    next.add(symbols.charAt(i));
+                    nodes.add(null);
+                }
+            } else {
+                next.addAll(node.children.keySet());
+                nodes.addAll(node.children.values());
+            }
+            for (int i = 0; i < next.size(); i++) {
+                boolean last = i == next.size() - 1;
+                Configuration[] forks = new Configuration[RUNS];
+                for (int run = 0; run < RUNS; run++) {
+                    if (!halted[run]) {
+                        forks[run] = last
+                                ? confs[run] : new Configuration(confs[run]);
+                        forks[run].getInputTape().appendInput(machineOf(run)
+                                .getAlphabet().encode(next.get(i)));
+                    }
+                }
+                children.add(new Walk(nodes.get(i), prefix + next.get(i),
+                        maxLength, forks, results.clone(), halted.clone(),
+                        found));
+            }
+            invokeAll(children);
+        }
+
+        /**
+         * Side method reading the result of a halted run.
+         * @param run the run.
+         * @param conf the Configuration of the run.
+         * @return "accept" or "reject" for checks, the output for
+         * simulations, null if the run reached the step budget.
+         */
+        private String resultOf(int run, Configuration conf) {
+            if (conf.getState().getStopClass() == 0
+                    && conf.getSteps() >= maxSteps
+                    && (run >= SIMULATE_FIRST || conf.getState().canAccept())) {
+                return null;
+            }
+            if (run < SIMULATE_FIRST) {
+                return conf.isAccepting() ? "accept" : "reject";
+            }
+            return machineOf(run).getOutput(conf);
+        }
+
+        /**
+         * Side method comparing the results of both machines on a word,
+         * keeping the word if they differ.
+         * @param word the word.
+         * @param compare the results of all runs.
+         */
+        private void compareResults(String word, String[] compare) {
+            Counterexample difference = null;
+            if (!compare[CHECK_FIRST].equals(compare[CHECK_SECOND])) {
+                difference = new Counterexample(word, "check",
+                        compare[CHECK_FIRST], compare[CHECK_SECOND]);
+            } else if (!compare[SIMULATE_FIRST].equals(
+                    compare[SIMULATE_SECOND])) {
+                difference = new Counterexample(word, "simulate",
+                        compare[SIMULATE_FIRST], compare[SIMULATE_SECOND]);
+            }
+            if (difference != null) {
+                found.accumulateAndGet(difference, (kept, added) ->
+                        kept == null || added.isBefore(kept) ? added : kept);
+            }
+        }
+
+        /**
+         * Side method finding the shortest sampled word below the node.
+         * @return the word.
+         */
+        private String firstWord() {
+            List<Node> level = List.of(node);
+            List<String> words = List.of(prefix);
+            while (true) {
+                List<Node> nextLevel = new ArrayList<>();
+                List<String> nextWords = new ArrayList<>();
+                for (int i = 0; i < level.size(); i++) {
+                    if (level.get(i).word) {
+                        return words.get(i);
+                    }
+                    for (Map.Entry<Character, Node> child
+                            : level.get(i).children.entrySet()) {
+                        nextLevel.add(child.getValue());
+                        nextWords.add(words.get(i) + child.getKey());
+                    }
+                }
+                level = nextLevel;
+                words = nextWords;
+            }
+        }
+
+        /**
+         * Side method computing the amount of words with a prefix of the
+         * given length, including the prefix itself.
+         * @param length the length of the prefix.
+         * @return the amount of words.
+         */
+        private long amountBelow(int length) {
+            long toReturn = 0;
+            long level = 1;
+            for (int i = length; i <= maxLength; i++) {
+                toReturn += level;
+                level *= symbols.length();
+            }
+            return toReturn;
+        }
+    }
+}
@@ -1,66 +1,86 @@
-import java.util.ArrayList;
-
 /**
- * InputTape class extending the normal WorkTape-Tape class, by augmented
- * methods for moving the pointer.
+ * InputTape class extending the normal WorkTape-Tape class, by the input
+ * word written on it and the possibility to append the input later on.
  * "Endlessness" of Tape simulated by adding Blanks if necessary.
  */
 public class InputTape extends Tape {
 
-    private ArrayList<Character> tapeContent;
-    private int pointer;
+    //Length of the input known so far
+    private int known;
+    //false if symbols may still be appended to the input
+    private boolean complete;
 
     /**
      * Constructor method for InputTapes.
      * @param input the key entered.
+     * @param alphabet the alphabet of the machine.
      */
-    InputTape(String input) {
-        char[] symbols = input.toCharArray();
-        tapeContent = new ArrayList<Character>();
+    InputTape(String input, Alphabet alphabet) {
+        this(alphabet.encode(input));
+    }
 
-        //Fill Tape
-        for (int i = 0; i < symbols.length; i++) {
-            tapeContent.add(i, symbols[i]);
-        }
+    /**
+     * Constructor method for InputTapes.
+     * @param input the codes of the key entered.
+     */
+    InputTape(byte[] input) {
+        super(input);
+        known = input.length;
+        complete = true;
+    }
 
-        //Empty String handed?
-        if (tapeContent.get(0) == null) {
-            tapeContent.add(TuringMachine.BLANK_CHAR);
-        }
+    /**
+     * Constructor method copying the content and pointer of another
+     * InputTape.
+     * @param other the InputTape to copy.
+     */
+    InputTape(InputTape other) {
+        super(other);
+        this.known = other.known;
+        this.complete = other.complete;
+    }
 
-        //Setup pointer
-        pointer = 0;
+    /**
+     * Creating an InputTape holding only the first part of the input, the
+     * rest is appended later by {@link #appendInput(byte)}.
+     * @param prefix the codes of the known part of the input.
+     * @return the InputTape.
+     */
+    static InputTape ofPrefix(byte[] prefix) {
+        InputTape toReturn = new InputTape(prefix);
+        toReturn.complete = false;
+        return toReturn;
     }
 
     /**
-     * Method moving the pointer up one position.
+     * Appending a symbol to an incomplete input.
+     * @param code the code of the next symbol of the input.
      */
-    public void movePointerUp() {
-        //"Endlessness" through adding blank char
-        if (pointer == tapeContent.size() - 1) {
-            tapeContent.add(TuringMachine.BLANK_CHAR);
-        }
+    void appendInput(byte code) {
+        setAt(known, code);
+        known++;
+    }
 
-        pointer++;
+    /**
+     * Marking the input as complete, i.e., everything behind the symbols
+     * known so far is blank.
+     */
+    void completeInput() {
+        complete = true;
     }
 
     /**
-     * Method moving the pointer down one position.
+     * @return the length of the input known so far.
      */
-    public void movePointerDown() {
-        //"Endlessness" through adding blank char
-        if (pointer == 0) {
-            tapeContent.add(0, TuringMachine.BLANK_CHAR);
-        } else {
-            pointer--;
-        }
+    int getKnownLength() {
+        return known;
     }
 
     /**
-     *
-     * @return the char currently pointed at by the pointer.
+     * @return true if the input is incomplete and the pointer points behind
+     * the known symbols, i.e., the current symbol is not yet known.
      */
-    public char getCurrent() {
-        return tapeContent.get(pointer);
+    boolean isBeyondKnownInput() {
+        return !complete && getPosition() >= known;
     }
-}
\ No newline at end of file
+}
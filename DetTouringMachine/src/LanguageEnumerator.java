@@ -0,0 +1,330 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Enumerator listing all words up to a given length accepted by a machine.
+ *
+ * The words form a tree: every word is a node, its children are the word
+ * followed by one more symbol. The tree is walked on a fork-join pool, one
+ * task per node, so the machine runs only once along every prefix, like in
+ * BatchEvaluator. A task runs the Configuration of its prefix until the
+ * next symbol is needed, decides the word ending there and forks a copy of
+ * the Configuration for every child. Runs halting before the end of the
+ * prefix decide all words below it at once.
+ *
+ * Every word runs under a step budget, counted from the start of its run,
+ * so the steps spent on the prefix count for all words below it. Words
+ * whose run reaches the budget are neither accepted nor rejected but
+ * counted as over budget. Accepted words are written one per line, in no
+ * particular order, as the tasks finish. The Shell command "words" lists
+ * the language of the current machine.
+ */
+public final class LanguageEnumerator {
+
+    /**
+     * Counters of an enumeration, updated while it runs.
+     */
+    public static final class Progress {
+        private final double total;
+        private final long start = System.nanoTime();
+        private final LongAdder accepted = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder overBudget = new LongAdder();
+
+        private Progress(double total) {
+            this.total = total;
+        }
+
+        /**
+         * @return the amount of words to decide.
+         */
+        public double getTotal() {
+            return total;
+        }
+
+        /**
+         * @return the amount of accepted words so far.
+         */
+        public long getAccepted() {
+            return accepted.sum();
+        }
+
+        /**
+         * @return the amount of rejected words so far.
+         */
+        public long getRejected() {
+            return rejected.sum();
+        }
+
+        /**
+         * @return the amount of words whose run reached the step budget so
+         * far.
+         */
+        public long getOverBudget() {
+            return overBudget.sum();
+        }
+
+        /**
+         * @return the amount of words decided so far.
+         */
+        public long getDone() {
+            return getAccepted() + getRejected() + getOverBudget();
+        }
+
+        @Override
+        public String toString() {
+            long done = getDone();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return String.format(Locale.ROOT,
+                    "%d words (%.1f%%), %d accepted, %d rejected, "
+                            + "%d over budget, %.0f words/s",
+                    done, 100.0 * done / total, getAccepted(), getRejected(),
+                    getOverBudget(), seconds > 0 ? done / seconds : 0.0);
+        }
+    }
+
+    //Accepted words buffered per thread until this many characters
+    private static final int FLUSH_SIZE = 1 << 16;
+
+    private final DetTuringMachine machine;
+    private final String symbols;
+    private final byte[] codes;
+    private final long maxSteps;
+    private volatile Progress progress;
+
+    /**
+     * Constructor method for an enumerator.
+     * @param machine the machine.
+     * @param symbols the symbols of the words.
+     * @param maxSteps the step budget of every word.
+     */
+    public LanguageEnumerator(DetTuringMachine machine, String symbols,
+                              long maxSteps) {
+        this.machine = machine;
+        this.symbols = symbols;
+        this.codes = new byte[symbols.length()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = machine.getAlphabet().encode(symbols.charAt(i));
+        }
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * @return the counters of the running or last enumeration, null before
+     * the first one.
+     */
+    public Progress getProgress() {
+        return progress;
+    }
+
+    /**
+     * Writes all accepted words up to the given length, one per line.
+     * @param maxLength the maximum length of the words.
+     * @param out the writer of the accepted words.
+     * @param pool the pool walking the words.
+     * @return the counters of the enumeration.
+     * @throws IOException If writing fails.
+     * @throws IllegalArgumentException If the maximum length is negative.
+     */
+    public Progress enumerate(int maxLength, Writer out, ForkJoinPool pool)
+            throws IOException {
+        if (maxLength < 0) {
+            throw new IllegalArgumentException("Negative length!");
+        }
+        Progress current = new Progress(amountBelow(0, maxLength));
+        progress = current;
+        Output output = new Output(out);
+        Configuration start
+                = machine.createConfiguration(InputTape.ofPrefix(new byte[0]));
+        try {
+            pool.invoke(new Walk(start, new StringBuilder(), maxLength,
+                    current, output));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        output.flushAll();
+        return current;
+    }
+
+    /**
+     * Side method computing the amount of words with a prefix of the given
+     * length, including the prefix itself.
+     * @param length the length of the prefix.
+     * @param maxLength the maximum length of the words.
+     * @return the amount of words.
+     */
+    private double amountBelow(int length, int maxLength) {
+        double toReturn = 0;
+        double level = 1;
+        for (int i = length; i <= maxLength; i++) {
+            toReturn += level;
+            level *= codes.length;
+        }
+        return toReturn;
+    }
+
+    /**
+     * Buffers of the accepted words, one per worker thread of the pool,
+     * written as whole blocks.
+     */
+    private static final class Output {
+        private final Writer out;
+        private final ConcurrentLinkedQueue<StringBuilder> all
+                = new ConcurrentLinkedQueue<>();
+        private final ThreadLocal<StringBuilder> buffers
+                = ThreadLocal.withInitial(() -> {
+                    StringBuilder buffer = new StringBuilder();
+                    all.add(buffer);
+                    return buffer;
+                });
+
+        private Output(Writer out) {
+            this.out = out;
+        }
+
+        /**
+         * Adds an accepted word, writing the buffer of this thread if full.
+         * @param word the word.
+         */
+        private void add(CharSequence word) {
+            StringBuilder buffer = buffers.get();
+            buffer.append(word).append('\n');
+            if (buffer.length() >= FLUSH_SIZE) {
+                write(buffer);
+            }
+        }
+
+        /**
+         * Side method writing and clearing a buffer.
+         * @param buffer the buffer.
+         */
+        private void write(StringBuilder buffer) {
+            try {
+                synchronized (out) {
+                    out.append(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buffer.setLength(0);
+        }
+
+        /**
+         * Writes the rest of all buffers, once no task runs anymore.
+         * @throws IOException If writing fails.
+         */
+        private void flushAll() throws IOException {
+            try {
+                for (StringBuilder buffer : all) {
+                    write(buffer);
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Task deciding the words with a given prefix.
+     */
+    private final class Walk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Configuration conf;
+        private final StringBuilder prefix;
+        private final int maxLength;
+        private final Progress counters;
+        private final Output output;
+
+        private Walk(Configuration conf, StringBuilder prefix, int maxLength,
+                     Progress counters, Output output) {
+            this.conf = conf;
+            this.prefix = prefix;
+            this.maxLength = maxLength;
+            this.counters = counters;
+            this.output = output;
+        }
+
+        @Override
+        protected void compute() {
+            //Halted before the end of the prefix, same result for all below
+            if (machine.run(conf, true, maxSteps)) {
+                if (conf.isAccepting()) {
+                    acceptAll(prefix);
+                } else {
+                    long amount = (long) amountBelow(prefix.length(),
+                            maxLength);
+                    (overBudget(conf) ? counters.overBudget
+                            : counters.rejected).add(amount);
+                }
+                return;
+            }
+
+            //The word ending here has only blanks behind the prefix
+            Configuration complete = new Configuration(conf);
+            complete.getInputTape().completeInput();
+            machine.run(complete, true, maxSteps);
+            if (complete.isAccepting()) {
+                counters.accepted.increment();
+                output.add(prefix);
+            } else if (overBudget(complete)) {
+                counters.overBudget.increment();
+            } else {
+                counters.rejected.increment();
+            }
+            if (prefix.length() == maxLength) {
+                return;
+            }
+
+            //Forking for every symbol, the last one reusing the original
+            List<Walk> children = new ArrayList<>(codes.length);
+            for (int i = 0; i < codes.length; i++) {
+                Configuration fork = i == codes.length - 1
+                        ? conf : new Configuration(conf);
+                fork.getInputTape().appendInput(codes[i]);
+                children.add(new Walk(fork, new StringBuilder(prefix)
+                        .append(symbols.charAt(i)), maxLength, counters,
+                        output));
+            }
+            invokeAll(children);
+        }
+
+        /**
+         * Side method checking if a run stopped at the step budget instead
+         * of halting.
+         * @param run the Configuration of the run.
+         * @return true if the run reached the budget.
+         */
+        private boolean overBudget(Configuration run) {
+            return run.getState().getStopClass() == 0
+                    && run.getState().canAccept()
+                    && run.getSteps() >= maxSteps;
+        }
+
+        /**
+         * Side method accepting the given word and all words below it.
+         * @param word the word, restored when returning.
+         */
+        private void acceptAll(StringBuilder word) {
+            counters.accepted.increment();
+            output.add(word);
+            if (word.length() == maxLength) {
+                return;
+            }
+            for (int i = 0; i < codes.length; i++) {
+                word.append(symbols.charAt(i));
+                acceptAll(word);
+                word.setLength(word.length() - 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe histogram of latencies in nanoseconds.
+ * Values are counted in log-linear buckets: every power of two is divided
+ * into eight buckets, so percentiles are exact up to 12.5 percent.
+ */
+public class LatencyHistogram {
+
+    //Bits of a value used to divide a power of two into buckets
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = SUB_COUNT + (63 - SUB_BITS) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Side method computing the bucket of a value.
+     * @param value the non-negative value.
+     * @return the index of the bucket.
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) Math.max(value, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) - SUB_COUNT;
+        return SUB_COUNT + (exponent - SUB_BITS) * SUB_COUNT + sub;
+    }
+
+    /**
+     * Side method computing the smallest value counted in a bucket.
+     * @param bucket the index of the bucket.
+     * @return the lower bound of the bucket.
+     */
+    private static long lowerBound(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int exponent = (bucket - SUB_COUNT) / SUB_COUNT + SUB_BITS;
+        long sub = (bucket - SUB_COUNT) % SUB_COUNT;
+        return (SUB_COUNT + sub) << (exponent - SUB_BITS);
+    }
+
+    /**
+     * Counting a measured latency.
+     * @param nanos the latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(bucketOf(nanos));
+        total.increment();
+        sum.add(nanos);
+    }
+
+    /**
+     * @return the amount of latencies counted.
+     */
+    public long getCount() {
+        return total.sum();
+    }
+
+    /**
+     * @return the mean latency in nanoseconds, 0 if nothing was counted.
+     */
+    public long getMean() {
+        long count = total.sum();
+        return count == 0 ? 0 : sum.sum() / count;
+    }
+
+    /**
+     * Computes a percentile of the counted latencies.
+     * @param percent the percentile, between 0 and 100.
+     * @return the lower bound of the bucket containing the percentile, 0 if
+     * nothing was counted.
+     */
+    public long getPercentile(double percent) {
+        long count = total.sum();
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(count * percent / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank && seen > 0) {
+                return lowerBound(i);
+            }
+        }
+        return lowerBound(BUCKETS - 1);
+    }
+
+    /**
+     * @return count, mean, p50, p99 and p99.9 in microseconds as one line.
+     */
+    public String summary() {
+        return String.format("count=%d mean=%.1fus p50=%.1fus p99=%.1fus "
+                        + "p999=%.1fus", getCount(), getMean() / 1e3,
+                getPercentile(50) / 1e3, getPercentile(99) / 1e3,
+                getPercentile(99.9) / 1e3);
+    }
+}
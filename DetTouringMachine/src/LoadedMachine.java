@@ -0,0 +1,44 @@
+/**
+ * Turing machine whose program is complete, so it can be run but not
+ * changed anymore.
+ */
+public interface LoadedMachine {
+
+    /**
+     * Returns the alphabet of the machine. The symbols of the alphabet and the
+     * blank are the only characters allowed on the tapes.
+     *
+     * @return The alphabet, by default {@code TuringMachine.FIRST_CHAR} to
+     * {@code TuringMachine.LAST_CHAR}.
+     */
+    default Alphabet getAlphabet() {
+        return Alphabet.DEFAULT;
+    }
+
+    /**
+     * Simulates the machine, i.e., computes and returns the output string for a
+     * given input word.
+     *
+     * @param input The input word.
+     * @return The content of the output tape after the machine has run.
+     */
+    String simulate(String input);
+
+    /**
+     * Checks if the given input word is accepted by the machine.
+     *
+     * @param input The input word.
+     * @return {@code true}, if and only if the input is accepted.
+     */
+    boolean check(String input);
+
+    /**
+     * Returns the Turing program as string. The commands are ordered
+     * lexicographically.
+     *
+     * @return The Turing program.
+     */
+    @Override
+    String toString();
+
+}
@@ -0,0 +1,388 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Generator of synthetic machine files and input corpora for benchmarks.
+ *
+ * All choices are drawn from a random generator seeded by the caller, so the
+ * same parameters always produce the same files. The generated machines
+ * always halt:
+ * <ul>
+ * <li>{@code scan}: every Command moves the input head to the right, the
+ * blank behind the input leads to the accepting or the rejecting State.
+ * A run takes at most one step per symbol of the input.</li>
+ * <li>{@code sweep}: behind the input a rewinding State moves all WorkTape
+ * heads back until the first WorkTape reads a blank and decides by the
+ * symbol on the output tape. A run takes about twice the steps.</li>
+ * </ul>
+ * Combinations of read symbols without a Command, controlled by the
+ * density, stop the run without accepting. The Shell command "generate"
+ * writes a machine file and optionally a corpus for it.
+ */
+public final class MachineGenerator {
+
+    /**
+     * Halting structures of the generated machines.
+     */
+    public enum Halting {
+        /**
+         * Deciding at the end of the input.
+         */
+        SCAN,
+        /**
+         * Rewinding the WorkTapes after the input before deciding.
+         */
+        SWEEP
+    }
+
+    /**
+     * Attempts per requested word to reach the accept ratio.
+     */
+    static final int ATTEMPTS_PER_WORD = 1000;
+
+    private final int states;
+    private final int tapes;
+    //Combinations of symbols on the output tape and all WorkTapes
+    private final int combinations;
+    private final double density;
+    private final Halting halting;
+    private final String symbols;
+    private final long seed;
+
+    /**
+     * Constructor method for a generator.
+     * @param states amount of States, at least 3 for scan and 4 for sweep.
+     * @param tapes amount of WorkTapes, the output tape not counted.
+     * @param density share of the combinations of read symbols having a
+     * Command, between 0 and 1.
+     * @param halting the halting structure.
+     * @param symbols the input symbols, also written on the WorkTapes.
+     * @param seed the seed of all random choices.
+     * @throws IllegalArgumentException If a parameter is invalid or the
+     * combinations of symbols read on the output tape and the WorkTapes do
+     * not fit an int.
+     */
+    public MachineGenerator(int states, int tapes, double density,
+                            Halting halting, String symbols, long seed) {
+        int minimum = halting == Halting.SWEEP ? 4 : 3;
+        if (states < minimum || tapes < 0 || density < 0 || density > 1
+                || symbols.isEmpty()
+                || Alphabet.parse(symbols) == null) {
+            throw new IllegalArgumentException("Invalid parameters!");
+        }
+        //Combinations of symbols on the output tape and all WorkTapes
+        int radix = symbols.length() + 1;
+        int amount = 1;
+        try {
+            for (int i = 0; i <= tapes; i++) {
+                amount = Math.multiplyExact(amount, radix);
+            }
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Too many tapes for the "
+                    + "symbols!");
+        }
+        this.combinations = amount;
+        this.states = states;
+        this.tapes = tapes;
+        this.density = density;
+        this.halting = halting;
+        this.symbols = symbols;
+        this.seed = seed;
+    }
+
+    /**
+     * @return the ID of the accepting State.
+     */
+    private int acceptState() {
+        return states - 2;
+    }
+
+    /**
+     * @return the ID of the rejecting State.
+     */
+    private int rejectState() {
+        return states - 1;
+    }
+
+    /**
+     * @return the ID of the rewinding State, only used by sweep.
+     */
+    private int rewindState() {
+        return states - 3;
+    }
+
+    /**
+     * @return the amount of States reading the input.
+     */
+    private int scanStates() {
+        return halting == Halting.SWEEP ? states - 3 : states - 2;
+    }
+
+    /**
+     * Writes the machine file. The Commands are streamed to the writer, so
+     * machines with millions of Commands need no memory for them.
+     * @param out the writer of the file.
+     * @return the amount of Commands written.
+     * @throws IOException If writing fails.
+     */
+    public long writeMachine(Writer out) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        //Symbols with the blank at position 0, as in Alphabet
+        char[] all = (TuringMachine.BLANK_CHAR + symbols).toCharArray();
+        int radix = all.length;
+
+        out.write(states + "\n" + tapes + "\n0\n" + acceptState() + " "
+                + rejectState() + "\n" + acceptState() + "\nalphabet "
+                + symbols + "\n");
+
+        long toReturn = 0;
+        char[] read = new char[tapes + 1];
+        StringBuilder line = new StringBuilder();
+        for (int state = 0; state < scanStates(); state++) {
+            for (int input = 0; input < radix; input++) {
+                for (int combination = 0; combination < combinations;
+                     combination++) {
+                    decode(combination, all, read);
+
+                    //Behind the input, deciding or rewinding
+                    if (input == 0) {
+                        int target = halting == Halting.SWEEP
+                                ? rewindState()
+                                : random.nextBoolean()
+                                ? acceptState() : rejectState();
+                        writeCommand(out, line, state, all[0], read, target,
+                                0, read, null);
+                        toReturn++;
+                        continue;
+                    }
+                    if (random.nextDouble() >= density) {
+                        continue;
+                    }
+
+                    char[] written = new char[tapes + 1];
+                    int[] moves = new int[tapes + 1];
+                    for (int i = 0; i <= tapes; i++) {
+                        written[i] = all[1 + random.nextInt(radix - 1)];
+                        //Mostly moving right, so the tapes grow
+                        int move = random.nextInt(4);
+                        moves[i] = move < 2 ? 1 : move - 3;
+                    }
+                    writeCommand(out, line, state, all[input], read,
+                            random.nextInt(scanStates()), 1, written, moves);
+                    toReturn++;
+                }
+            }
+        }
+
+        if (halting == Halting.SWEEP) {
+            toReturn += writeRewind(out, line, all, combinations, read);
+        }
+        return toReturn;
+    }
+
+    /**
+     * Side method writing the Commands of the rewinding State. Moves all
+     * WorkTape heads to the left while the first WorkTape is not blank,
+     * then accepts if the output tape is not blank.
+     * @param out the writer of the file.
+     * @param line buffer for a line.
+     * @param all all symbols, the blank first.
+     * @param combinations amount of combinations of tape symbols.
+     * @param read buffer for the read symbols.
+     * @return the amount of Commands written.
+     * @throws IOException If writing fails.
+     */
+    private long writeRewind(Writer out, StringBuilder line, char[] all,
+                             int combinations, char[] read)
+            throws IOException {
+        int[] left = new int[tapes + 1];
+        for (int i = 0; i <= tapes; i++) {
+            left[i] = -1;
+        }
+        for (int combination = 0; combination < combinations;
+             combination++) {
+            decode(combination, all, read);
+            //Without WorkTapes deciding right away
+            boolean done = tapes == 0 || read[1] == TuringMachine.BLANK_CHAR;
+            if (!done) {
+                writeCommand(out, line, rewindState(), all[0], read,
+                        rewindState(), 0, read, left);
+            } else {
+                int target = read[0] != TuringMachine.BLANK_CHAR
+                        ? acceptState() : rejectState();
+                writeCommand(out, line, rewindState(), all[0], read, target,
+                        0, read, null);
+            }
+        }
+        return combinations;
+    }
+
+    /**
+     * Side method decoding a combination of tape symbols.
+     * @param combination the combination, digits to the base of the
+     * amount of symbols.
+     * @param all all symbols, the blank first.
+     * @param read the decoded symbols.
+     */
+    private static void decode(int combination, char[] all, char[] read) {
+        for (int i = read.length - 1; i >= 0; i--) {
+            read[i] = all[combination % all.length];
+            combination /= all.length;
+        }
+    }
+
+    /**
+     * Side method writing one Command in the format of the machine file.
+     * @param out the writer of the file.
+     * @param line buffer for the line.
+     * @param source the source State.
+     * @param input the symbol read on the InputTape.
+     * @param read the symbols read on the output tape and WorkTapes.
+     * @param target the target State.
+     * @param inputMove the move of the input head.
+     * @param written the symbols written.
+     * @param moves the moves of the heads, null for not moving.
+     * @throws IOException If writing fails.
+     */
+    private static void writeCommand(Writer out, StringBuilder line,
+                                     int source, char input, char[] read,
+                                     int target, int inputMove,
+                                     char[] written, int[] moves)
+            throws IOException {
+        line.setLength(0);
+        line.append(source).append(' ').append(input);
+        for (char symbol : read) {
+            line.append(' ').append(symbol);
+        }
+        line.append(' ').append(target).append(' ').append(move(inputMove));
+        for (int i = 0; i < written.length; i++) {
+            line.append(' ').append(written[i]).append(' ')
+                    .append(move(moves == null ? 0 : moves[i]));
+        }
+        line.append('\n');
+        out.append(line);
+    }
+
+    /**
+     * Side method printing a move like the machine file.
+     * @param move the move.
+     * @return the move printed.
+     */
+    private static String move(int move) {
+        return move > 0 ? "+1" : Integer.toString(move);
+    }
+
+    /**
+     * Generates a corpus of words for the given machine. Lengths are drawn
+     * from the given distribution. If an accept ratio is given, words are
+     * drawn until the requested amount of accepted and rejected words is
+     * found or the attempts are exhausted.
+     *
+     * @param machine The machine generated by this generator.
+     * @param amount The amount of words.
+     * @param lengths The length distribution, {@code fixed:n},
+     * {@code uniform:min-max} or {@code geometric:mean}.
+     * @param acceptRatio The share of accepted words, negative for not
+     * checking the words.
+     * @return The words, fewer than requested if the ratio was not reached.
+     */
+    public List<String> generateCorpus(TuringMachine machine, int amount,
+                                       String lengths, double acceptRatio) {
+        //Own stream, so the corpus does not depend on the machine size
+        Random random = new Random(seed ^ 0x5DEECE66DL);
+        List<String> toReturn = new ArrayList<>(amount);
+        if (acceptRatio < 0) {
+            for (int i = 0; i < amount; i++) {
+                toReturn.add(randomWord(random, lengths));
+            }
+            return toReturn;
+        }
+
+        int wantedAccepted = (int) Math.round(amount * acceptRatio);
+        List<String> accepted = new ArrayList<>();
+        List<String> rejected = new ArrayList<>();
+        long attempts = (long) amount * ATTEMPTS_PER_WORD;
+        while ((accepted.size() < wantedAccepted
+                || rejected.size() < amount - wantedAccepted)
+                && attempts-- > 0) {
+            String word = randomWord(random, lengths);
+            if (machine.check(word)) {
+                if (accepted.size() < wantedAccepted) {
+                    accepted.add(word);
+                }
+            } else if (rejected.size() < amount - wantedAccepted) {
+                rejected.add(word);
+            }
+        }
+
+        //Mixing both in a reproducible order
+        int a = 0;
+        int r = 0;
+        while (a < accepted.size() || r < rejected.size()) {
+            boolean takeAccepted = r == rejected.size()
+                    || (a < accepted.size() && random.nextDouble()
+                    < acceptRatio);
+            toReturn.add(takeAccepted ? accepted.get(a++) : rejected.get(r++));
+        }
+        return toReturn;
+    }
+
+    /**
+     * Side method drawing a random word.
+     * @param random the random generator.
+     * @param lengths the length distribution.
+     * @return the word.
+     */
+    private String randomWord(Random random, String lengths) {
+        int length = randomLength(random, lengths);
+        StringBuilder toReturn = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            toReturn.append(symbols.charAt(random.nextInt(symbols.length())));
+        }
+        return toReturn.toString();
+    }
+
+    /**
+     * Side method drawing a length from a distribution.
+     * @param random the random generator.
+     * @param lengths the length distribution.
+     * @return the length, at least 1.
+     */
+    static int randomLength(Random random, String lengths) {
+        String[] parts = lengths.split(":", 2);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Invalid lengths: " + lengths);
+        }
+        switch (parts[0]) {
+            case "fixed" :
+                return Math.max(1, Integer.parseInt(parts[1]));
+            case "uniform" :
+                String[] range = parts[1].split("-");
+                int min = Math.max(1, Integer.parseInt(range[0]));
+                int max = Integer.parseInt(range[1]);
+                if (max < min) {
+                    throw new IllegalArgumentException("Invalid lengths: "
+                            + lengths);
+                }
+                return min + random.nextInt(max - min + 1);
+            case "geometric" :
+                double mean = Double.parseDouble(parts[1]);
+                if (mean < 1) {
+                    throw new IllegalArgumentException("Invalid lengths: "
+                            + lengths);
+                }
+                //Amount of trials until the first success, at least 1
+                double p = 1 / mean;
+                double u = 1 - random.nextDouble();
+                return (int) Math.min(Integer.MAX_VALUE - 8,
+                        1 + Math.floor(Math.log(u) / Math.log(1 - p)));
+            default :
+                throw new IllegalArgumentException("Invalid lengths: "
+                        + lengths);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for loading a machine from a file. The duration of
+ * the event is the time needed for parsing.
+ */
+@Name("dtm.MachineLoad")
+@Label("Machine Load")
+@Category("Turing Machine")
+@Description("A Turing machine program was loaded from a file")
+class MachineLoadEvent extends Event {
+
+    @Label("File")
+    String file;
+
+    @Label("States")
+    int states;
+
+    @Label("Transitions")
+    int transitions;
+}
@@ -0,0 +1,329 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Pipeline of machines, each stage simulating the output of the stage
+ * before as its input. The result is the same as passing the result of
+ * {@link TuringMachine#simulate(String)} of every stage to the next one.
+ *
+ * Every stage runs in its own thread. The output tape of a stage is handed
+ * to the InputTape of the next stage through a SymbolPipe. If no Command of
+ * a stage moves the head of its output tape to the left, the cells left of
+ * the head are final and streamed whenever the stage waits for more input,
+ * so the stages run at the same time. Otherwise the output is handed over
+ * once the stage halted. Stages whose output is no longer needed, because
+ * the next stage halted already, are stopped.
+ */
+public class MachinePipeline implements AutoCloseable {
+
+    /**
+     * Buffered symbols between two stages.
+     */
+    static final int PIPE_CAPACITY = 1 << 16;
+
+    /**
+     * Metrics of one stage in the latest run of the pipeline.
+     */
+    public static final class StageMetrics {
+        private long steps;
+        private long runNanos;
+        private long waitNanos;
+        private long symbolsOut;
+
+        /**
+         * @return the amount of steps executed.
+         */
+        public long getSteps() {
+            return steps;
+        }
+
+        /**
+         * @return the time spent running the machine.
+         */
+        public long getRunNanos() {
+            return runNanos;
+        }
+
+        /**
+         * @return the time spent waiting for input.
+         */
+        public long getWaitNanos() {
+            return waitNanos;
+        }
+
+        /**
+         * @return the amount of symbols handed to the next stage.
+         */
+        public long getSymbolsOut() {
+            return symbolsOut;
+        }
+
+        @Override
+        public String toString() {
+            return "steps=" + steps + " run=" + runNanos / 1000 + "us wait="
+                    + waitNanos / 1000 + "us out=" + symbolsOut;
+        }
+    }
+
+    private final DetTuringMachine[] stages;
+    //Translation of the output codes of every stage into the next alphabet
+    private final byte[][] translations;
+    //true if the output tape of the stage never moves left
+    private final boolean[] streaming;
+    private final ExecutorService threads;
+    private volatile StageMetrics[] metrics = new StageMetrics[0];
+
+    /**
+     * Constructor method for a pipeline.
+     * @param stages the machines in the order they are passed through.
+     */
+    public MachinePipeline(List<DetTuringMachine> stages) {
+        if (stages.isEmpty()) {
+            throw new IllegalArgumentException("No stages!");
+        }
+        this.stages = stages.toArray(new DetTuringMachine[0]);
+        this.translations = new byte[this.stages.length][];
+        this.streaming = new boolean[this.stages.length];
+        for (int i = 0; i < this.stages.length; i++) {
+            streaming[i] = isOutputForward(this.stages[i]);
+            if (i + 1 < this.stages.length) {
+                translations[i] = translation(this.stages[i].getAlphabet(),
+                        this.stages[i + 1].getAlphabet());
+            }
+        }
+        this.threads = Executors.newFixedThreadPool(this.stages.length,
+                runnable -> {
+                    Thread thread = new Thread(runnable, "dtm-pipeline");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Side method checking if no Command moves the output tape left.
+     * @param machine the machine.
+     * @return true if the output head never moves left.
+     */
+    private static boolean isOutputForward(DetTuringMachine machine) {
+        for (int i = 0; i < machine.getCommandCount(); i++) {
+            if (machine.getCommand(i).getPointerMove(0).getMoveInt() < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Side method translating all codes of one alphabet into another.
+     * @param from the alphabet of the output.
+     * @param to the alphabet of the input.
+     * @return the codes in the second alphabet, indexed by the first.
+     */
+    private static byte[] translation(Alphabet from, Alphabet to) {
+        byte[] toReturn = new byte[from.size()];
+        for (int i = 0; i < toReturn.length; i++) {
+            toReturn[i] = to.encode(from.decode((byte) i));
+        }
+        return toReturn;
+    }
+
+    /**
+     * Runs the given word through all stages.
+     * @param input the input of the first stage.
+     * @return the output of the last stage.
+     * @throws InterruptedException If interrupted while waiting for the
+     * stages.
+     */
+    public String simulate(String input) throws InterruptedException {
+        StageMetrics[] current = new StageMetrics[stages.length];
+        SymbolPipe[] pipes = new SymbolPipe[stages.length - 1];
+        for (int i = 0; i < pipes.length; i++) {
+            pipes[i] = new SymbolPipe(PIPE_CAPACITY);
+        }
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < stages.length; i++) {
+            int stage = i;
+            current[i] = new StageMetrics();
+            results.add(threads.submit(() -> runStage(stage, input,
+                    stage == 0 ? null : pipes[stage - 1],
+                    stage == pipes.length ? null : pipes[stage],
+                    current[stage])));
+        }
+
+        try {
+            String toReturn = null;
+            for (Future<String> result : results) {
+                toReturn = result.get();
+            }
+            metrics = current;
+            return toReturn;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Stage failed!", e.getCause());
+        } finally {
+            for (Future<String> result : results) {
+                result.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Side method running one stage.
+     * @param stage the position of the stage.
+     * @param word the input of the first stage.
+     * @param in the pipe from the stage before, null for the first stage.
+     * @param out the pipe to the next stage, null for the last stage.
+     * @param stageMetrics the metrics of the stage.
+     * @return the output, if this is the last stage.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private String runStage(int stage, String word, SymbolPipe in,
+                            SymbolPipe out, StageMetrics stageMetrics)
+            throws InterruptedException {
+        DetTuringMachine machine = stages[stage];
+        InputTape inputTape = in == null
+                ? new InputTape(word, machine.getAlphabet())
+                : InputTape.ofPrefix(new byte[0]);
+        Configuration conf = machine.createConfiguration(inputTape);
+        Emitter emitter = new Emitter(out, translations[stage],
+                machine.getAlphabet());
+        long start = machine.getStats().runStarted();
+
+        try {
+            boolean halted = false;
+            while (!halted && (out == null || !out.isAbandoned())) {
+                if (in != null) {
+                    long waiting = System.nanoTime();
+                    if (in.drainTo(inputTape) < 0) {
+                        inputTape.completeInput();
+                    }
+                    stageMetrics.waitNanos += System.nanoTime() - waiting;
+                }
+                //No input, no run, as in simulate
+                if (inputTape.getKnownLength() == 0) {
+                    return "";
+                }
+
+                long running = System.nanoTime();
+                halted = machine.run(conf);
+                stageMetrics.runNanos += System.nanoTime() - running;
+                if (!halted && streaming[stage]) {
+                    emitter.emit(conf.getTapes()[0], false);
+                }
+            }
+
+            emitter.emit(conf.getTapes()[0], true);
+            stageMetrics.symbolsOut = emitter.emitted;
+            return emitter.result.toString();
+        } finally {
+            //Never leaving the neighbouring stages waiting
+            if (in != null) {
+                in.abandon();
+            }
+            emitter.close();
+            stageMetrics.steps = conf.getSteps();
+            machine.getStats().runFinished(start, conf.getSteps());
+        }
+    }
+
+    /**
+     * Output of a stage, leaving out leading and trailing blanks like
+     * simulate does.
+     */
+    private static final class Emitter {
+        private final SymbolPipe out;
+        private final byte[] translation;
+        //Collecting the output of the last stage instead
+        private final StringBuilder result = new StringBuilder();
+        private final Alphabet alphabet;
+        //Next position of the output tape to emit, none before the first
+        private int next = Integer.MIN_VALUE;
+        private boolean started;
+        private long pendingBlanks;
+        private long emitted;
+
+        private Emitter(SymbolPipe out, byte[] translation,
+                        Alphabet alphabet) {
+            this.out = out;
+            this.translation = translation;
+            this.alphabet = alphabet;
+        }
+
+        /**
+         * Emitting the final cells of the output tape.
+         * @param tape the output tape.
+         * @param halted true if the stage halted, so all cells are final.
+         * @throws InterruptedException If interrupted while waiting.
+         */
+        private void emit(Tape tape, boolean halted)
+                throws InterruptedException {
+            if (next == Integer.MIN_VALUE) {
+                next = tape.getFirstPosition();
+            }
+            int end = halted ? tape.getLastPosition() + 1 : tape.getPosition();
+            for (int position = next; position < end; position++) {
+                byte code = tape.getAt(position);
+                if (code == Alphabet.BLANK) {
+                    if (started) {
+                        pendingBlanks++;
+                    }
+                    continue;
+                }
+                for (; pendingBlanks > 0; pendingBlanks--) {
+                    write(Alphabet.BLANK);
+                }
+                write(code);
+                started = true;
+            }
+            next = Math.max(next, end);
+            //Like simulate, keeping a single blank if nothing was reached
+            if (halted && !started && tape.getUsedCells() == 1) {
+                write(Alphabet.BLANK);
+            }
+            if (halted) {
+                close();
+            } else if (out != null) {
+                out.publish();
+            }
+        }
+
+        /**
+         * Side method writing one code.
+         * @param code the code in the alphabet of the stage.
+         * @throws InterruptedException If interrupted while waiting.
+         */
+        private void write(byte code) throws InterruptedException {
+            emitted++;
+            if (out != null) {
+                out.put(translation[code]);
+            } else {
+                result.append(alphabet.decode(code));
+            }
+        }
+
+        /**
+         * Side method marking the end of the output.
+         */
+        private void close() {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * @return the metrics of every stage in the latest run.
+     */
+    public StageMetrics[] getMetrics() {
+        return metrics.clone();
+    }
+
+    @Override
+    public void close() {
+        threads.shutdownNow();
+    }
+}
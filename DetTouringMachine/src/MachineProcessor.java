@@ -0,0 +1,384 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Processor checking or simulating a stream of words, for pipelines built
+ * on {@link java.util.concurrent.Flow}.
+ *
+ * Every word received is run on the given executor, so slow words only
+ * occupy one run while the following words keep running. At most a fixed
+ * amount of words is inside the processor at once, running or waiting to
+ * be delivered: words are only requested from the upstream publisher when
+ * one of them leaves, so a slow subscriber slows down the publisher instead
+ * of filling the memory. The results are delivered in the order of the
+ * words, or in the order they are finished if the order is given up for
+ * throughput, so that no slow word holds back the results after it.
+ *
+ * The processor serves a single subscriber. A failing run ends the stream
+ * with its exception and cancels the upstream subscription.
+ */
+public final class MachineProcessor
+        implements Flow.Processor<String, MachineProcessor.Result> {
+
+    /**
+     * What is done with every word.
+     */
+    public enum Operation {
+        /**
+         * {@link TuringMachine#check(String)}.
+         */
+        CHECK,
+        /**
+         * {@link TuringMachine#simulate(String)}.
+         */
+        SIMULATE
+    }
+
+    /**
+     * Result of one word.
+     */
+    public static final class Result {
+        private final long sequence;
+        private final String word;
+        private final boolean accepted;
+        private final String output;
+
+        private Result(long sequence, String word, boolean accepted,
+                       String output) {
+            this.sequence = sequence;
+            this.word = word;
+            this.accepted = accepted;
+            this.output = output;
+        }
+
+        /**
+         * @return the position of the word in the stream, starting at 0.
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * @return the word.
+         */
+        public String getWord() {
+            return word;
+        }
+
+        /**
+         * @return true if the word is accepted, false for simulations.
+         */
+        public boolean isAccepted() {
+            return accepted;
+        }
+
+        /**
+         * @return the output of the simulation, null for checks.
+         */
+        public String getOutput() {
+            return output;
+        }
+
+        @Override
+        public String toString() {
+            return sequence + " " + word + " "
+                    + (output == null ? Boolean.toString(accepted) : output);
+        }
+    }
+
+    private final TuringMachine machine;
+    private final Operation operation;
+    private final Executor executor;
+    private final int maxInFlight;
+    private final boolean ordered;
+
+    //All following fields are guarded by this processor
+    private Flow.Subscription upstream;
+    private Flow.Subscriber<? super Result> downstream;
+    //Results requested by the subscriber and not yet delivered
+    private long demand;
+    //Words requested from the publisher and not yet received
+    private long requested;
+    //Words received and not yet delivered
+    private int inside;
+    private long nextSequence;
+    private long nextDelivery;
+    //Finished results not yet delivered, by sequence if ordered
+    private final Map<Long, Result> finishedBySequence = new HashMap<>();
+    private final ArrayDeque<Result> finished = new ArrayDeque<>();
+    private boolean upstreamDone;
+    private Throwable failure;
+    private boolean cancelled;
+    private boolean terminated;
+    //Only one thread delivers at a time, others leave their work to it
+    private boolean draining;
+    private boolean missed;
+
+    /**
+     * Constructor method for a processor.
+     * @param machine the machine running the words.
+     * @param operation what is done with every word.
+     * @param executor the executor running the words.
+     * @param maxInFlight the maximum amount of words inside the processor.
+     * @param ordered true for delivering the results in the order of the
+     *                words, false for the order they are finished in.
+     */
+    public MachineProcessor(TuringMachine machine, Operation operation,
+                            Executor executor, int maxInFlight,
+                            boolean ordered) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("No words in flight!");
+        }
+        this.machine = machine;
+        this.operation = operation;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.ordered = ordered;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        synchronized (this) {
+            if (upstream != null || upstreamDone) {
+                //Only one publisher
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+            if (cancelled) {
+                subscription.cancel();
+                return;
+            }
+        }
+        drain();
+    }
+
+    @Override
+    public void onNext(String word) {
+        long sequence;
+        synchronized (this) {
+            if (upstreamDone || cancelled) {
+                return;
+            }
+            sequence = nextSequence++;
+            inside++;
+            requested--;
+        }
+        try {
+            executor.execute(() -> runWord(sequence, word));
+        } catch (RejectedExecutionException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        fail(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        synchronized (this) {
+            upstreamDone = true;
+        }
+        drain();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Result> subscriber) {
+        boolean accepted;
+        synchronized (this) {
+            accepted = downstream == null;
+            if (accepted) {
+                downstream = subscriber;
+            }
+        }
+        if (!accepted) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException(
+                    "Only one subscriber!"));
+            return;
+        }
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    fail(new IllegalArgumentException(
+                            "Non-positive request: " + n));
+                    return;
+                }
+                synchronized (MachineProcessor.this) {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                Flow.Subscription toCancel;
+                synchronized (MachineProcessor.this) {
+                    cancelled = true;
+                    terminated = true;
+                    finished.clear();
+                    finishedBySequence.clear();
+                    toCancel = upstream;
+                }
+                if (toCancel != null) {
+                    toCancel.cancel();
+                }
+            }
+        });
+        drain();
+    }
+
+    /**
+     * Side method running one word on the executor.
+     * @param sequence the position of the word in the stream.
+     * @param word the word.
+     */
+    private void runWord(long sequence, String word) {
+        Result result;
+        try {
+            if (operation == Operation.CHECK) {
+                result = new Result(sequence, word, machine.check(word),
+                        null);
+            } else {
+                result = new Result(sequence, word, false,
+                        machine.simulate(word));
+            }
+        } catch (RuntimeException e) {
+            fail(e);
+            return;
+        }
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            if (ordered) {
+                finishedBySequence.put(sequence, result);
+            } else {
+                finished.add(result);
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Side method ending the stream with an error.
+     * @param throwable the error.
+     */
+    private void fail(Throwable throwable) {
+        Flow.Subscription toCancel;
+        synchronized (this) {
+            if (failure != null) {
+                return;
+            }
+            failure = throwable;
+            upstreamDone = true;
+            toCancel = upstream;
+        }
+        if (toCancel != null) {
+            toCancel.cancel();
+        }
+        drain();
+    }
+
+    /**
+     * Side method taking the next deliverable result.
+     * @return the result, null if there is none yet.
+     */
+    private Result nextFinished() {
+        if (!ordered) {
+            return finished.poll();
+        }
+        Result toReturn = finishedBySequence.remove(nextDelivery);
+        if (toReturn != null) {
+            nextDelivery++;
+        }
+        return toReturn;
+    }
+
+    /**
+     * Side method delivering the finished results as far as requested,
+     * requesting more words as results leave and ending the stream once
+     * all are delivered. Signals are sent outside of the lock and never by
+     * two threads at once.
+     */
+    private void drain() {
+        synchronized (this) {
+            if (draining) {
+                missed = true;
+                return;
+            }
+            draining = true;
+        }
+
+        while (true) {
+            List<Result> batch = new ArrayList<>();
+            Flow.Subscriber<? super Result> subscriber;
+            Flow.Subscription toRequest;
+            long amount = 0;
+            Throwable error = null;
+            boolean complete = false;
+            synchronized (this) {
+                subscriber = downstream;
+                if (subscriber != null && !terminated) {
+                    Result next = demand > 0 ? nextFinished() : null;
+                    while (next != null) {
+                        batch.add(next);
+                        demand--;
+                        inside--;
+                        next = demand > 0 ? nextFinished() : null;
+                    }
+                    if (failure != null) {
+                        error = failure;
+                        terminated = true;
+                    } else if (upstreamDone && inside == 0) {
+                        complete = true;
+                        terminated = true;
+                    }
+                }
+                //Keeping the words inside at the maximum
+                toRequest = upstreamDone || cancelled ? null : upstream;
+                if (toRequest != null) {
+                    amount = maxInFlight - inside - requested;
+                    requested += Math.max(amount, 0);
+                }
+            }
+
+            for (Result result : batch) {
+                subscriber.onNext(result);
+            }
+            if (error != null) {
+                subscriber.onError(error);
+            } else if (complete) {
+                subscriber.onComplete();
+            }
+            if (amount > 0) {
+                toRequest.request(amount);
+            }
+
+            synchronized (this) {
+                if (!missed) {
+                    draining = false;
+                    return;
+                }
+                missed = false;
+            }
+        }
+    }
+}
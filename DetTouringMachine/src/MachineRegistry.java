@@ -0,0 +1,216 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.text.ParseException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.UnaryOperator;
+
+/**
+ * Registry of named Turing machines, loading them in the background.
+ *
+ * A loaded machine is published atomically under its name, replacing the
+ * previous version. Runs already started keep using the version they got,
+ * while runs started afterwards use the new one. Loads of the same name are
+ * executed in the order they were requested, each one sharing the indexes
+ * of unchanged States with the version it replaces.
+ */
+public class MachineRegistry {
+
+    private final ConcurrentHashMap<String, LoadedMachine> machines
+            = new ConcurrentHashMap<>();
+    //File of the published version per name
+    private final ConcurrentHashMap<String, File> files
+            = new ConcurrentHashMap<>();
+    //Latest requested load per name
+    private final ConcurrentHashMap<String, CompletableFuture<LoadedMachine>>
+            loads = new ConcurrentHashMap<>();
+    private final ExecutorService loader;
+
+    /**
+     * Constructor method for an empty registry.
+     */
+    public MachineRegistry() {
+        this.loader = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(), runnable -> {
+                    Thread thread = new Thread(runnable, "dtm-loader");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Loads a machine from the given file in the background and publishes it
+     * under the given name once loaded.
+     * @param name the name of the machine.
+     * @param file the file containing the Turing program.
+     * @return the pending load, failing with an UncheckedIOException or a
+     * CompletionException caused by a ParseException.
+     */
+    public CompletableFuture<LoadedMachine> load(String name, File file) {
+        return schedule(name, file, previous -> loadFile(file, previous));
+    }
+
+    /**
+     * Loads a machine like {@link #load(String, File)}, but as a tiered
+     * machine starting in the interpreter (see TieredMachine).
+     * @param name the name of the machine.
+     * @param file the file containing the Turing program.
+     * @param hotRuns the runs after which the machine is promoted.
+     * @return the pending load, failing like the one of load.
+     */
+    public CompletableFuture<LoadedMachine> loadTiered(String name, File file,
+                                                       int hotRuns) {
+        return schedule(name, file,
+                previous -> loadTieredFile(file, hotRuns));
+    }
+
+    /**
+     * Side method scheduling a load after the loads of the same name
+     * requested before.
+     * @param name the name of the machine.
+     * @param file the file containing the Turing program.
+     * @param loading the load, given the previous version, may be null.
+     * @return the pending load.
+     */
+    private CompletableFuture<LoadedMachine> schedule(
+            String name, File file,
+            UnaryOperator<LoadedMachine> loading) {
+        return loads.compute(name, (key, pending) -> {
+            CompletableFuture<?> before = pending == null
+                    ? CompletableFuture.completedFuture(null)
+                    : pending.handle((machine, failure) -> null);
+            return before.thenApplyAsync(ignored -> {
+                LoadedMachine loaded = loading.apply(machines.get(name));
+                files.put(name, file);
+                machines.put(name, loaded);
+                return loaded;
+            }, loader);
+        });
+    }
+
+    /**
+     * Side method loading a file, reusing the given previous version.
+     * @param file the file containing the Turing program.
+     * @param previous the previous version, may be null.
+     * @return the loaded machine.
+     */
+    private static LoadedMachine loadFile(File file, LoadedMachine previous) {
+        //Sharing the indexes of the current form of a tiered machine
+        LoadedMachine reused = previous instanceof TieredMachine
+                ? ((TieredMachine) previous).getMachine() : previous;
+        try {
+            return TuringMachineFactory.loadFromFile(file,
+                    reused instanceof TuringMachine
+                            ? (TuringMachine) reused : null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ParseException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Side method loading a file as a tiered machine.
+     * @param file the file containing the Turing program.
+     * @param hotRuns the runs after which the machine is promoted.
+     * @return the loaded machine.
+     */
+    private static LoadedMachine loadTieredFile(File file, int hotRuns) {
+        try {
+            return TuringMachineFactory.loadTiered(file, hotRuns);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ParseException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Returns the currently published version of a machine without waiting
+     * for pending loads.
+     * @param name the name of the machine.
+     * @return the machine, null if none is published under the name.
+     */
+    public LoadedMachine get(String name) {
+        return machines.get(name);
+    }
+
+    /**
+     * @param name the name of a machine.
+     * @return the file the published version was loaded from, null if none
+     * is published under the name.
+     */
+    public File fileOf(String name) {
+        return files.get(name);
+    }
+
+    /**
+     * Returns the version of a machine after all loads requested so far.
+     * @param name the name of the machine.
+     * @return the machine, null if none was ever requested under the name.
+     * @throws CompletionException If the latest load failed.
+     */
+    public LoadedMachine await(String name) {
+        CompletableFuture<LoadedMachine> pending = loads.get(name);
+        if (pending != null) {
+            pending.join();
+        }
+        return machines.get(name);
+    }
+
+    /**
+     * @param name the name of a machine.
+     * @return true if the machine is published or being loaded.
+     */
+    public boolean isKnown(String name) {
+        return loads.containsKey(name) || machines.containsKey(name);
+    }
+
+    /**
+     * Forgets the latest load of a machine if it failed, so the version
+     * published before is used again. A machine never loaded successfully
+     * is thereby removed, unless another load of it is pending.
+     * @param name the name of the machine.
+     * @return the published version, null if there is none.
+     */
+    public LoadedMachine discardFailedLoad(String name) {
+        CompletableFuture<LoadedMachine> pending = loads.get(name);
+        if (pending != null && pending.isCompletedExceptionally()) {
+            loads.remove(name, pending);
+        }
+        return machines.get(name);
+    }
+
+    /**
+     * Removes a machine. Runs already started are not affected.
+     * @param name the name of the machine.
+     */
+    public void remove(String name) {
+        loads.remove(name);
+        machines.remove(name);
+        files.remove(name);
+    }
+
+    /**
+     * @return the sorted names of all published machines and the ones being
+     * loaded.
+     */
+    public Set<String> names() {
+        Set<String> toReturn = new TreeSet<>(machines.keySet());
+        toReturn.addAll(loads.keySet());
+        return toReturn;
+    }
+
+    /**
+     * Stops the background loading. Pending loads are still finished.
+     */
+    public void close() {
+        loader.shutdown();
+    }
+}
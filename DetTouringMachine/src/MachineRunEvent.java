@@ -0,0 +1,36 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for a finished check or simulation of a word.
+ */
+@Name("dtm.MachineRun")
+@Label("Machine Run")
+@Category("Turing Machine")
+@Description("A Turing machine finished checking or simulating a word")
+class MachineRunEvent extends Event {
+
+    @Label("Machine")
+    String machine;
+
+    @Label("Mode")
+    String mode;
+
+    @Label("Steps")
+    @Description("Steps of the machine, none if decided by the automaton")
+    long steps;
+
+    @Label("Tape Cells")
+    @Description("Cells reached on all WorkTapes")
+    long tapeCells;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Automaton")
+    @Description("Decided by the compiled finite automaton")
+    boolean automaton;
+}
@@ -0,0 +1,233 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server answering check and run requests for loaded machines over a local
+ * TCP socket, so the machines are loaded once instead of once per request.
+ *
+ * The protocol is line based, every request is answered by exactly one line:
+ * <pre>
+ * check (machine) (word)  -&gt; accept | reject
+ * run (machine) (word)    -&gt; content of the output tape
+ * stats                   -&gt; latencies of check and run requests
+ * quit                    -&gt; closes the connection
+ * </pre>
+ * As in the Shell, only the first letter of a request is significant and
+ * errors are answered with a line starting with "Error!". Clients may send
+ * multiple requests without waiting for the answers; answers are written in
+ * request order and flushed once no more requests are pending. The Shell
+ * command "serve" serves the machines loaded in the Shell.
+ */
+public final class MachineServer implements Closeable {
+
+    //Time given to open connections to finish on shutdown
+    private static final long SHUTDOWN_SECONDS = 5;
+
+    private final MachineRegistry machines;
+    private final ServerSocket serverSocket;
+    //One thread per connection
+    private final ExecutorService connections = Executors.newCachedThreadPool();
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+    private final LatencyHistogram checkLatency = new LatencyHistogram();
+    private final LatencyHistogram runLatency = new LatencyHistogram();
+    private volatile boolean running;
+
+    /**
+     * Constructor method binding the server to the loopback address.
+     * @param port the port to listen on, 0 for any free port.
+     * @param machines the registry of the machines to serve. Machines loaded
+     *                 into it later are served as well. The registry is not
+     *                 closed with the server, it stays with its owner.
+     * @throws IOException If the socket cannot be bound.
+     */
+    public MachineServer(int port, MachineRegistry machines)
+            throws IOException {
+        this.machines = machines;
+        this.serverSocket = new ServerSocket(port, 50,
+                InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Starts accepting connections in a background thread.
+     */
+    public void start() {
+        running = true;
+        Thread acceptor = new Thread(this::acceptLoop, "dtm-acceptor");
+        acceptor.start();
+    }
+
+    /**
+     * @return the port the server is listening on.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return the latencies of all check requests answered.
+     */
+    public LatencyHistogram getCheckLatency() {
+        return checkLatency;
+    }
+
+    /**
+     * @return the latencies of all run requests answered.
+     */
+    public LatencyHistogram getRunLatency() {
+        return runLatency;
+    }
+
+    /**
+     * Side method accepting connections until the server is closed.
+     */
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                openSockets.add(socket);
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                //Server socket closed on shutdown
+                if (running) {
+                    System.err.println("Error! Accepting failed: "
+                            + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Side method answering all requests of one connection.
+     * @param socket the connection.
+     */
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(
+                     socket.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                     socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            String request = in.readLine();
+            while (request != null) {
+                String answer = answer(request);
+                if (answer == null) {
+                    break;
+                }
+                out.write(answer);
+                out.newLine();
+
+                //Batching answers of pipelined requests
+                if (!in.ready()) {
+                    out.flush();
+                }
+                request = in.readLine();
+            }
+            out.flush();
+        } catch (SocketException e) {
+            //Connection closed by the client
+        } catch (IOException e) {
+            System.err.println("Error! Connection failed: " + e.getMessage());
+        } finally {
+            openSockets.remove(socket);
+        }
+    }
+
+    /**
+     * Computes the answer to a single request.
+     * @param request the request line.
+     * @return the answer line, null if the connection is to be closed.
+     */
+    String answer(String request) {
+        String[] parts = request.trim().split("\\s+");
+        if (parts[0].isEmpty()) {
+            return "Error! Empty command";
+        }
+
+        switch (parts[0].toLowerCase().charAt(0)) {
+            case 'q' :
+                return null;
+            case 's' :
+                return "check " + checkLatency.summary() + "; run "
+                        + runLatency.summary();
+            case 'c' :
+            case 'r' :
+                break;
+            default :
+                return "Error! Unknown command.";
+        }
+
+        if (parts.length < 2) {
+            return "Error! Wrong amount of input!";
+        }
+        LoadedMachine machine = machines.get(parts[1]);
+        if (machine == null) {
+            return "Error! Unknown machine!";
+        }
+
+        //No word given, answered as by the Shell
+        String key = parts.length < 3 ? "" : parts[2];
+        if (!key.isEmpty() && !Shell.isValidKey(key, machine)) {
+            return "Error! Not matching the alphabet!";
+        }
+
+        long start = System.nanoTime();
+        String toReturn;
+        if (parts[0].toLowerCase().charAt(0) == 'c') {
+            toReturn = key.isEmpty() || machine.check(key)
+                    ? "accept" : "reject";
+            checkLatency.record(System.nanoTime() - start);
+        } else {
+            toReturn = machine.simulate(key);
+            runLatency.record(System.nanoTime() - start);
+        }
+        return toReturn;
+    }
+
+    /**
+     * Shuts the server down gracefully. No more connections are accepted,
+     * requests already received are answered before their connections are
+     * closed.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            //Nothing left to close
+        }
+
+        //Letting the connections answer their pending requests
+        for (Socket socket : openSockets) {
+            try {
+                socket.shutdownInput();
+            } catch (IOException e) {
+                //Already closed
+            }
+        }
+
+        connections.shutdown();
+        try {
+            if (!connections.awaitTermination(SHUTDOWN_SECONDS,
+                    TimeUnit.SECONDS)) {
+                connections.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            connections.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
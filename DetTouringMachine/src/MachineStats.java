@@ -0,0 +1,136 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Statistics of the runs of one machine, registered as MBean once the
+ * machine is loaded. Only updated once per run, never per step.
+ */
+public class MachineStats implements MachineStatsMBean {
+
+    /**
+     * Domain of the ObjectNames of all machines.
+     */
+    static final String DOMAIN = "DetTuringMachine";
+
+    //Minimum time between two samples of the rates
+    private static final long SAMPLE_NANOS = 1_000_000_000L;
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder steps = new LongAdder();
+    private final AtomicInteger activeRuns = new AtomicInteger();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private volatile String name = "";
+
+    //Previous sample of the rates
+    private long sampleTime = System.nanoTime();
+    private long sampleRuns;
+    private long sampleSteps;
+    private double runsPerSecond;
+    private double stepsPerSecond;
+
+    /**
+     * Counting the start of a run.
+     * @return the start time of the run.
+     */
+    long runStarted() {
+        activeRuns.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Counting a finished run.
+     * @param start the start time returned by {@link #runStarted()}.
+     * @param runSteps the amount of steps of the run.
+     */
+    void runFinished(long start, long runSteps) {
+        latency.record(System.nanoTime() - start);
+        runs.increment();
+        steps.add(runSteps);
+        activeRuns.decrementAndGet();
+    }
+
+    /**
+     * Registers these statistics under the given name, replacing the ones of
+     * a machine previously loaded under the same name.
+     * @param machineName the name of the machine, usually its file.
+     */
+    void register(String machineName) {
+        this.name = machineName;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(DOMAIN
+                    + ":type=Machine,name=" + ObjectName.quote(machineName));
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(this, objectName);
+        } catch (JMException e) {
+            //Monitoring is optional, the machine works without
+        }
+    }
+
+    /**
+     * Side method sampling the rates, at most once per {@code SAMPLE_NANOS}.
+     */
+    private synchronized void sample() {
+        long now = System.nanoTime();
+        long elapsed = now - sampleTime;
+        if (elapsed < SAMPLE_NANOS) {
+            return;
+        }
+
+        long currentRuns = runs.sum();
+        long currentSteps = steps.sum();
+        runsPerSecond = (currentRuns - sampleRuns) * 1e9 / elapsed;
+        stepsPerSecond = (currentSteps - sampleSteps) * 1e9 / elapsed;
+        sampleTime = now;
+        sampleRuns = currentRuns;
+        sampleSteps = currentSteps;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getRuns() {
+        return runs.sum();
+    }
+
+    @Override
+    public long getSteps() {
+        return steps.sum();
+    }
+
+    @Override
+    public synchronized double getRunsPerSecond() {
+        sample();
+        return runsPerSecond;
+    }
+
+    @Override
+    public synchronized double getStepsPerSecond() {
+        sample();
+        return stepsPerSecond;
+    }
+
+    @Override
+    public long getRunLatencyP50Nanos() {
+        return latency.getPercentile(50);
+    }
+
+    @Override
+    public long getRunLatencyP99Nanos() {
+        return latency.getPercentile(99);
+    }
+
+    @Override
+    public int getActiveRuns() {
+        return activeRuns.get();
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * Management interface exposing the statistics of a loaded machine via JMX.
+ */
+public interface MachineStatsMBean {
+
+    /**
+     * @return The name the machine was loaded under, usually its file.
+     */
+    String getName();
+
+    /**
+     * @return The amount of finished runs.
+     */
+    long getRuns();
+
+    /**
+     * @return The amount of steps of all finished runs. Checks decided by
+     * the compiled automaton execute no steps.
+     */
+    long getSteps();
+
+    /**
+     * @return The finished runs per second since the previous sample.
+     */
+    double getRunsPerSecond();
+
+    /**
+     * @return The steps of finished runs per second since the previous
+     * sample.
+     */
+    double getStepsPerSecond();
+
+    /**
+     * @return The median latency of all finished runs in nanoseconds.
+     */
+    long getRunLatencyP50Nanos();
+
+    /**
+     * @return The 99th percentile of the latency of all finished runs in
+     * nanoseconds.
+     */
+    long getRunLatencyP99Nanos();
+
+    /**
+     * @return The amount of runs currently executed.
+     */
+    int getActiveRuns();
+}
@@ -0,0 +1,115 @@
+/**
+ * WorkTape storing the codes of its symbols with as few bits as the
+ * alphabet of the machine needs, packed into longs.
+ *
+ * With b bits per code, cell i lies in the bits i*b to i*b+b-1 of the
+ * storage, counted from the lowest bit of the first long; a cell may span
+ * two longs. Reading and writing a cell only takes shifts and masks. The
+ * blank, code 0, is all bits 0, so new storage is blank. For the 27
+ * symbols of the default alphabet, 5 bits per cell instead of 8 are used;
+ * smaller alphabets need fewer, e.g. 2 bits for a, b and the blank.
+ */
+final class PackedTape extends Tape {
+
+    //Cells are added in multiples of this, so the storage is whole longs
+    private static final int INITIAL_SIZE = 64;
+
+    private final int bits;
+    private final long mask;
+    private long[] words;
+    //Amount of cells in words
+    private int cells;
+
+    /**
+     * Constructor method for a blank Tape.
+     * @param bits the bits per code, 1 to 8.
+     * @param reserved amount of cells reserved in each direction, 0 for the
+     *                 default.
+     */
+    PackedTape(int bits, int reserved) {
+        super(null, cellsFor(reserved) / 2);
+        this.bits = bits;
+        this.mask = (1L << bits) - 1;
+        this.cells = cellsFor(reserved);
+        this.words = new long[cells / 64 * bits];
+    }
+
+    /**
+     * Constructor method copying the content and pointer of another Tape.
+     * @param other the Tape to copy.
+     */
+    private PackedTape(PackedTape other) {
+        super(other);
+        this.bits = other.bits;
+        this.mask = other.mask;
+        this.words = other.words.clone();
+        this.cells = other.cells;
+    }
+
+    /**
+     * Side method computing the initial amount of cells.
+     * @param reserved amount of cells reserved in each direction.
+     * @return the amount of cells, a multiple of {@link #INITIAL_SIZE}.
+     */
+    private static int cellsFor(int reserved) {
+        int wanted = Math.max(INITIAL_SIZE, 2 * reserved + 1);
+        return (wanted + INITIAL_SIZE - 1) / INITIAL_SIZE * INITIAL_SIZE;
+    }
+
+    /**
+     * Computes the bits needed for the codes of an alphabet.
+     * @param alphabet the alphabet.
+     * @return the bits per code.
+     */
+    static int bitsFor(Alphabet alphabet) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(
+                alphabet.size() - 1));
+    }
+
+    @Override
+    Tape copy() {
+        return new PackedTape(this);
+    }
+
+    @Override
+    int capacity() {
+        return cells;
+    }
+
+    @Override
+    byte cell(int index) {
+        long offset = (long) index * bits;
+        int word = (int) (offset >>> 6);
+        int shift = (int) offset & 63;
+        long value = words[word] >>> shift;
+        //Spanning into the next long
+        if (shift + bits > 64) {
+            value |= words[word + 1] << (64 - shift);
+        }
+        return (byte) (value & mask);
+    }
+
+    @Override
+    void setCell(int index, byte code) {
+        long offset = (long) index * bits;
+        int word = (int) (offset >>> 6);
+        int shift = (int) offset & 63;
+        long value = code & mask;
+        words[word] = (words[word] & ~(mask << shift)) | (value << shift);
+        if (shift + bits > 64) {
+            int rest = 64 - shift;
+            words[word + 1] = (words[word + 1] & ~(mask >>> rest))
+                    | (value >>> rest);
+        }
+    }
+
+    @Override
+    void growStorage(boolean front) {
+        //Whole longs, as the cells are a multiple of 64
+        long[] grown = new long[words.length * 2];
+        System.arraycopy(words, 0, grown, front ? words.length : 0,
+                words.length);
+        words = grown;
+        cells *= 2;
+    }
+}
@@ -1,9 +1,27 @@
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileReader;
 import java.io.FileNotFoundException;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.CompletionException;
 
 /**
  * Shell class handling the input and executing methods on the trie.
@@ -13,6 +31,12 @@ public final class Shell {
     //Prompt of the UserInterface
     private static final String PROMPT = "dtm> ";
 
+    //Prompt of the debugger
+    private static final String DEBUG_PROMPT = "dbg> ";
+
+    //Amount of steps kept when tracing is enabled
+    private static final int TRACE_CAPACITY = 1 << 16;
+
     /**
      * Main method starting up the Shell input
      * @param args
@@ -31,7 +55,11 @@ public final class Shell {
      * @throws IOException
      */
     private static void shellExecute(BufferedReader stdin) throws IOException {
-        TuringMachine machine = null;
+        MachineRegistry registry = new MachineRegistry();
+        //Name of the machine the commands are executed on
+        String current = null;
+        //Server answering requests on the loaded machines, null if stopped
+        MachineServer server = null;
         //Param deciding if to quit the input-loop
         boolean quit = false;
 
@@ -54,33 +82,129 @@ public final class Shell {
                     //Closing the user interface
                     case 'q' :
                         quit = true;
+                        if (server != null) {
+                            server.close();
+                        }
+                        registry.close();
                         break;
 
-                    //Input of a new file
+                    //Input of a new file, loaded in the background
                     case 'i' :
-                        machine = commandNew(parts, machine);
-                        if (machine == null) {
-                            error("Couldn't initialize machine!");
+                        String loading = commandNew(parts, registry);
+                        if (loading != null) {
+                            current = loading;
                         }
                         break;
 
+                    //Switching to another loaded machine
+                    case 'u' :
+                        current = commandUse(parts, registry, current);
+                        break;
+
+                    //Listing all loaded machines
+                    case 'l' :
+                        commandList(registry, current);
+                        break;
+
                     //Run the inputstring and print the result
                     case 'r' :
-                        commandRun(parts, machine);
+                        LoadedMachine toRun = currentMachine(registry, current);
+                        if (toRun == null) {
+                            error("No machine loaded!");
+                            break;
+                        }
+                        commandRun(parts, toRun);
                         break;
 
                     //Checking acceptance of input in current machine
                     case 'c' :
-                        commandCheck(parts, machine);
+                        LoadedMachine toCheck
+                                = currentMachine(registry, current);
+                        if (toCheck == null) {
+                            error("No machine loaded!");
+                            break;
+                        }
+                        commandCheck(parts, toCheck);
+                        break;
+
+                    //Debugging a run of the current machine
+                    case 'd' :
+                        commandDebug(parts,
+                                detMachine(currentMachine(registry, current)),
+                                stdin);
+                        break;
+
+                    //Checking all words of a file at once
+                    case 'b' :
+                        commandBatch(parts, registry, current);
                         break;
 
                     //Printing all commands in order
                     case 'p' :
-                        if (machine == null) {
+                        LoadedMachine toPrint
+                                = currentMachine(registry, current);
+                        if (toPrint == null) {
                             System.out.println("");
                             break;
                         }
-                        commandPrint(machine);
+                        commandPrint(toPrint);
+                        break;
+
+                    //Tracing the runs of the current machine
+                    case 't' :
+                        commandTrace(parts,
+                                detMachine(currentMachine(registry, current)));
+                        break;
+
+                    //Heap allocated by the step loop of the current machine
+                    case 'a' :
+                        commandAllocation(parts,
+                                detMachine(currentMachine(registry, current)));
+                        break;
+
+                    //Writing a generated machine and corpus
+                    case 'g' :
+                        commandGenerate(parts);
+                        break;
+
+                    //Saving the profiled layout of the current machine
+                    case 'o' :
+                        commandOrder(parts, registry, current);
+                        break;
+
+                    //Comparing the current machine with another one
+                    case 'e' :
+                        commandEquivalence(parts, registry, current);
+                        break;
+
+                    //Serving the loaded machines or searching the slowest
+                    //inputs of the current machine
+                    case 's' :
+                        if (parts[0].toLowerCase().startsWith("serv")) {
+                            server = commandServe(parts, registry, server);
+                        } else {
+                            commandSearch(parts, detMachine(
+                                    currentMachine(registry, current)));
+                        }
+                        break;
+
+                    //Measuring the growth of steps and cells
+                    case 'm' :
+                        commandMeasure(parts,
+                                detMachine(currentMachine(registry, current)));
+                        break;
+
+                    //Listing the words accepted by the current machine
+                    case 'w' :
+                        commandWords(parts,
+                                detMachine(currentMachine(registry, current)));
+                        break;
+
+                    //Footprint of the transitions shared by all machines
+                    case 'f' :
+                        System.out.println(TransitionPool.SHARED.report(
+                                validAmount(parts, 2)
+                                && parts[1].equalsIgnoreCase("gc")));
                         break;
 
                     //Display of help
@@ -124,34 +248,162 @@ public final class Shell {
     }
 
     /**
-     * Side method called when a new TuringMachine has to be set up.
-     * Calls the TuringMachineFactory and returns its result.
-     * @param parts the name of the file which contains the instructions.
-     * @param toSet
-     * @return the built TuringMachine if successful, null otherwise.
-     */
-    private static TuringMachine commandNew(String[] parts,
-                                            TuringMachine toSet) {
-        //(Trying to) create machine
-        if (validAmount(parts, 2)) {
-            try {
-                String fileName = parts[1];
-                File machineFile = new File(fileName);
-                toSet = TuringMachineFactory.loadFromFile(machineFile);
-                return toSet;
-            } catch (FileNotFoundException e) {
-                error("No file found!");
+     * Side method reading the options of a command, given as name=value.
+     * An invalid option is reported.
+     * @param inputs the command.
+     * @param from the index of the first option.
+     * @return the options, null if one of them is invalid.
+     */
+    private static Map<String, String> options(String[] inputs, int from) {
+        Map<String, String> toReturn = new HashMap<>();
+        for (int i = from; i < inputs.length; i++) {
+            String[] option = inputs[i].split("=", 2);
+            if (option.length != 2) {
+                error("Invalid option: " + inputs[i]);
                 return null;
-            } catch (ParseException e) {
+            }
+            toReturn.put(option[0], option[1]);
+        }
+        return toReturn;
+    }
+
+    /**
+     * Side method called when a new TuringMachine has to be set up.
+     * Hands the file to the registry, which loads it in the background.
+     * The option tiered=n loads it as a tiered machine, starting in the
+     * interpreter and promoted after n runs (see TieredMachine).
+     * @param parts the name of the file which contains the instructions,
+     *              optionally followed by the name of the machine and the
+     *              option.
+     * @param registry
+     * @return the name of the machine if the input is valid, null otherwise.
+     */
+    private static String commandNew(String[] parts,
+                                     MachineRegistry registry) {
+        if (!validAmount(parts, 2)) {
+            error("Wrong amount of input!");
+            return null;
+        }
+        String fileName = parts[1];
+        boolean named = validAmount(parts, 3) && !parts[2].contains("=");
+        String name = named ? parts[2] : fileName;
+        Map<String, String> options = options(parts, named ? 3 : 2);
+        if (options == null) {
+            return null;
+        }
+
+        String tiered = options.get("tiered");
+        if (tiered == null) {
+            registry.load(name, new File(fileName));
+            return name;
+        }
+        int hotRuns;
+        try {
+            hotRuns = Integer.parseInt(tiered);
+        } catch (NumberFormatException e) {
+            error("Not a valid number!");
+            return null;
+        }
+        if (hotRuns < 1) {
+            error("A machine is promoted after at least one run!");
+            return null;
+        }
+        registry.loadTiered(name, new File(fileName), hotRuns);
+        return name;
+    }
+
+    /**
+     * Side method returning the current machine once all of its loads
+     * requested so far are finished. A failed load is reported, the
+     * version loaded before is kept, and a machine that never loaded is
+     * removed.
+     * @param registry
+     * @param current the name of the current machine, may be null.
+     * @return the machine if successfully loaded, null otherwise.
+     */
+    private static LoadedMachine currentMachine(MachineRegistry registry,
+                                                String current) {
+        if (current == null) {
+            return null;
+        }
+
+        try {
+            return registry.await(current);
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ParseException) {
                 error("Parsing not possible!");
-                return null;
-            } catch (IOException e) {
+            } else if (cause != null
+                    && cause.getCause() instanceof FileNotFoundException) {
+                error("No file found!");
+            } else {
                 error("Fault at IO!");
-                return null;
             }
-        } else {
+            error("Couldn't initialize machine!");
+            LoadedMachine previous = registry.discardFailedLoad(current);
+            if (previous != null) {
+                error("Keeping the previously loaded version!");
+            }
+            return previous;
+        }
+    }
+
+    /**
+     * Side method returning the deterministic machine running a loaded
+     * machine, for a tiered machine the form it currently runs in.
+     * @param machine the loaded machine, may be null.
+     * @return the deterministic machine, null if there is none.
+     */
+    private static DetTuringMachine detMachine(LoadedMachine machine) {
+        if (machine instanceof TieredMachine) {
+            return ((TieredMachine) machine).getMachine();
+        }
+        return machine instanceof DetTuringMachine
+                ? (DetTuringMachine) machine : null;
+    }
+
+    /**
+     * Side method switching to another machine of the registry.
+     * @param parts the name of the machine to switch to.
+     * @param registry
+     * @param current the name of the current machine.
+     * @return the name of the machine used from now on.
+     */
+    private static String commandUse(String[] parts, MachineRegistry registry,
+                                     String current) {
+        if (!validAmount(parts, 2)) {
             error("Wrong amount of input!");
-            return null;
+            return current;
+        } else if (!registry.isKnown(parts[1])) {
+            error("Unknown machine!");
+            return current;
+        }
+        return parts[1];
+    }
+
+    /**
+     * Side method printing the names of all loaded machines, marking the
+     * current one. Tiered machines are listed with the form they run in,
+     * once their promotion, if started, is finished.
+     * @param registry
+     * @param current the name of the current machine.
+     */
+    private static void commandList(MachineRegistry registry,
+                                    String current) {
+        for (String name : registry.names()) {
+            String line = name;
+            LoadedMachine machine = registry.get(name);
+            if (machine instanceof TieredMachine) {
+                TieredMachine tiered = (TieredMachine) machine;
+                tiered.awaitPromotion();
+                line += " (" + tiered.getTier().toString().toLowerCase()
+                        + ")";
+            }
+            if (name.equals(current)) {
+                System.out.println("* " + line);
+            } else {
+                System.out.println("  " + line);
+            }
         }
     }
 
@@ -162,7 +414,7 @@ public final class Shell {
      * @param turingMachine
      */
     private static void commandRun(String[] inputs,
-                                   TuringMachine turingMachine) {
+                                   LoadedMachine turingMachine) {
         //Right amount of words in input?
         if (validAmount(inputs, 2)) {
             String key = inputs[1];
@@ -187,7 +439,7 @@ public final class Shell {
      * @param turingMachine
      */
     private static void commandCheck(String[] inputs,
-                                     TuringMachine turingMachine) {
+                                     LoadedMachine turingMachine) {
         //Right amount of words in input?
         if (validAmount(inputs, 2)) {
             String key = inputs[1];
@@ -207,12 +459,870 @@ public final class Shell {
         }
     }
 
+    /**
+     * Side method debugging a run of the machine on a word. Reads debugger
+     * commands until the debugger is quit.
+     * @param inputs the word to run, none for the empty word.
+     * @param turingMachine
+     * @param stdin
+     * @throws IOException
+     */
+    private static void commandDebug(String[] inputs,
+                                     TuringMachine turingMachine,
+                                     BufferedReader stdin) throws IOException {
+        if (!(turingMachine instanceof DetTuringMachine)) {
+            error("No machine loaded!");
+            return;
+        }
+        String key = validAmount(inputs, 2) ? inputs[1] : "";
+        Debugger debugger = new Debugger((DetTuringMachine) turingMachine,
+                key);
+        System.out.println(debugger.describe());
+
+        boolean quit = false;
+        while (!quit) {
+            System.out.print(DEBUG_PROMPT);
+            String input = stdin.readLine();
+            if (input == null) {
+                return;
+            }
+            String[] parts = input.trim().split("\\s+");
+            if (parts[0].isEmpty()) {
+                continue;
+            }
+
+            Debugger.Stop stop = null;
+            try {
+                switch (parts[0].toLowerCase().charAt(0)) {
+                    case 'q' :
+                        quit = true;
+                        break;
+                    case 's' :
+                        stop = debugger.step(debugAmount(parts, 1));
+                        break;
+                    case 'u' :
+                        stop = debugger.back(debugAmount(parts, 1));
+                        break;
+                    case 'j' :
+                        stop = debugger.jumpTo(debugAmount(parts, 0));
+                        break;
+                    case 'c' :
+                        stop = debugger.resume();
+                        break;
+                    case 'r' :
+                        stop = debugger.reverse();
+                        break;
+                    case 'b' :
+                        if (!validAmount(parts, 3)) {
+                            error("Wrong amount of input!");
+                        } else if (parts[1].toLowerCase().startsWith("s")) {
+                            debugger.breakOnState(Integer.parseInt(parts[2]));
+                        } else {
+                            debugger.breakOnCommand(
+                                    Integer.parseInt(parts[2]));
+                        }
+                        break;
+                    case 'd' :
+                        debugger.clearBreakpoints();
+                        break;
+                    case 'p' :
+                        System.out.println(debugger.describe());
+                        break;
+                    default :
+                        error("Unknown command. Available: step [n], "
+                                + "undo [n], jump (n), continue, reverse, "
+                                + "break (state | transition) (id), delete, "
+                                + "print, quit");
+                }
+            } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                error("Not a valid number!");
+            }
+
+            if (stop != null) {
+                if (stop != Debugger.Stop.REACHED) {
+                    System.out.println(stop.toString().toLowerCase());
+                }
+                System.out.println(debugger.describe());
+            }
+        }
+    }
+
+    /**
+     * Side method reading the amount of steps of a debugger command.
+     * @param parts the debugger command.
+     * @param standard amount if none is given.
+     * @return the amount.
+     */
+    private static long debugAmount(String[] parts, long standard) {
+        return validAmount(parts, 2) ? Long.parseLong(parts[1]) : standard;
+    }
+
+    /**
+     * Side method checking all words of a file, one word per line, in one
+     * batch and printing the result of every word. Given options, the batch
+     * runs on worker processes (see BatchCoordinator) instead. Options are
+     * given as name=value: out (file of the results instead of printing),
+     * workers (local worker processes), port (for workers on other hosts),
+     * chunk (words per chunk), timeout (milliseconds per chunk), window
+     * (chunks read ahead) and jvm (options of the local workers' JVMs,
+     * separated by commas).
+     * @param inputs the name of the file with the words followed by the
+     *               options.
+     * @param registry
+     * @param current the name of the current machine.
+     */
+    private static void commandBatch(String[] inputs,
+                                     MachineRegistry registry,
+                                     String current) {
+        TuringMachine turingMachine
+                = detMachine(currentMachine(registry, current));
+        if (!(turingMachine instanceof DetTuringMachine)) {
+            error("No machine loaded!");
+            return;
+        } else if (!validAmount(inputs, 2)) {
+            error("Wrong amount of input!");
+            return;
+        } else if (validAmount(inputs, 3)) {
+            Map<String, String> options = options(inputs, 2);
+            if (options != null) {
+                commandDistributedBatch(inputs[1], registry.fileOf(current),
+                        options);
+            }
+            return;
+        }
+
+        List<String> words;
+        try {
+            words = readWords(inputs[1]);
+        } catch (FileNotFoundException e) {
+            error("No file found!");
+            return;
+        } catch (IOException e) {
+            error("Fault at IO!");
+            return;
+        }
+
+        boolean[] accepted = BatchEvaluator.checkAll(
+                (DetTuringMachine) turingMachine, words);
+        for (int i = 0; i < accepted.length; i++) {
+            System.out.println(words.get(i) + ": "
+                    + (accepted[i] ? "accept" : "reject"));
+        }
+    }
+
+    /**
+     * Side method checking all words of a file on worker processes, each
+     * loading the machine file, and printing or writing the results.
+     * @param wordFile the name of the file with the words.
+     * @param machineFile the file of the machine.
+     * @param options the options of the batch.
+     */
+    private static void commandDistributedBatch(String wordFile,
+                                                File machineFile,
+                                                Map<String, String> options) {
+        BatchCoordinator coordinator;
+        int workers;
+        try {
+            workers = Integer.parseInt(options.getOrDefault("workers", "2"));
+            List<String> jvmOptions = new ArrayList<>();
+            for (String option : options.getOrDefault("jvm", "").split(",")) {
+                if (!option.isEmpty()) {
+                    jvmOptions.add(option);
+                }
+            }
+            coordinator = new BatchCoordinator(machineFile,
+                    Integer.parseInt(options.getOrDefault("port", "0")),
+                    Integer.parseInt(options.getOrDefault("chunk", "10000")),
+                    Integer.parseInt(options.getOrDefault("timeout",
+                            "60000")),
+                    Integer.parseInt(options.getOrDefault("window",
+                            Integer.toString(4 * Math.max(workers, 1)))),
+                    jvmOptions);
+        } catch (IllegalArgumentException e) {
+            error("Invalid option value!");
+            return;
+        } catch (IOException e) {
+            error("Port not available!");
+            return;
+        }
+
+        String file = options.get("out");
+        long start = System.nanoTime();
+        try (BufferedReader words
+                     = new BufferedReader(new FileReader(wordFile))) {
+            for (int i = 0; i < workers; i++) {
+                coordinator.startLocalWorker();
+            }
+            if (file == null) {
+                coordinator.run(words, new BufferedWriter(
+                        new OutputStreamWriter(System.out)));
+            } else {
+                try (Writer results
+                             = new BufferedWriter(new FileWriter(file))) {
+                    coordinator.run(words, results);
+                }
+            }
+            System.out.println("Batch done in "
+                    + (System.nanoTime() - start) / 1000000 + "ms, "
+                    + coordinator.getRestarts() + " workers restarted.");
+        } catch (FileNotFoundException e) {
+            error("No file found!");
+        } catch (IOException e) {
+            error("Batch failed: " + e.getMessage());
+        } finally {
+            coordinator.close();
+        }
+    }
+
+    /**
+     * Side method measuring the heap allocated by the step loop of the
+     * machine on a word and printing the amount of steps. The word may be
+     * written in blocks like a^3b^2 for aaabb, so a run can be long enough
+     * to measure. An allocating step loop and a run too short to measure
+     * are reported as errors.
+     * @param inputs the word to run, none for the empty word.
+     * @param turingMachine
+     */
+    private static void commandAllocation(String[] inputs,
+                                          TuringMachine turingMachine) {
+        if (!(turingMachine instanceof DetTuringMachine)) {
+            error("No machine loaded!");
+            return;
+        }
+        String key;
+        try {
+            key = validAmount(inputs, 2) ? expandBlocks(inputs[1]) : "";
+        } catch (NumberFormatException e) {
+            error("Not a valid number!");
+            return;
+        }
+        if (!key.isEmpty() && !isValidKey(key, turingMachine)) {
+            error("Not matching the alphabet!");
+            return;
+        }
+
+        long[] result;
+        try {
+            //Warming up, so the measured run is compiled
+            for (int i = 0; i < AllocationProbe.WARM_UP; i++) {
+                AllocationProbe.measure((DetTuringMachine) turingMachine,
+                        key);
+            }
+            result = AllocationProbe.measure((DetTuringMachine) turingMachine,
+                    key);
+        } catch (UnsupportedOperationException e) {
+            error("Allocation measuring not supported!");
+            return;
+        }
+        if (result[0] < AllocationProbe.MIN_STEPS) {
+            error("Only " + result[0] + " steps, at least "
+                    + AllocationProbe.MIN_STEPS + " needed for measuring!");
+        } else if (result[1] > AllocationProbe.TOLERANCE) {
+            error("The step loop allocates " + result[1] + " bytes in "
+                    + result[0] + " steps!");
+        } else {
+            System.out.println(result[0] + " steps, no allocation");
+        }
+    }
+
+    /**
+     * Side method expanding the blocks of a word: a symbol followed by ^
+     * and a number stands for the symbol repeated that often.
+     * @param word the word with blocks.
+     * @return the word without blocks.
+     * @throws NumberFormatException If the amount of a block is too large.
+     */
+    private static String expandBlocks(String word) {
+        StringBuilder toReturn = new StringBuilder();
+        int i = 0;
+        while (i < word.length()) {
+            char symbol = word.charAt(i);
+            int end = i + 2;
+            while (end < word.length() && Character.isDigit(word.charAt(end))) {
+                end++;
+            }
+            if (end > i + 2 && word.charAt(i + 1) == '^') {
+                toReturn.append(String.valueOf(symbol).repeat(
+                        Integer.parseInt(word.substring(i + 2, end))));
+                i = end;
+            } else {
+                toReturn.append(symbol);
+                i++;
+            }
+        }
+        return toReturn.toString();
+    }
+
+    /**
+     * Side method writing a generated machine file and, if asked for, a
+     * corpus of words for it. Options are given as name=value: states,
+     * tapes, density, halting (scan or sweep), symbols, seed, corpus (file),
+     * words, lengths and accept (ratio).
+     * @param inputs the name of the machine file followed by the options.
+     */
+    private static void commandGenerate(String[] inputs) {
+        if (!validAmount(inputs, 2)) {
+            error("Wrong amount of input!");
+            return;
+        }
+        Map<String, String> options = options(inputs, 2);
+        if (options == null) {
+            return;
+        }
+
+        try {
+            MachineGenerator generator = new MachineGenerator(
+                    Integer.parseInt(options.getOrDefault("states", "16")),
+                    Integer.parseInt(options.getOrDefault("tapes", "1")),
+                    Double.parseDouble(options.getOrDefault("density", "1")),
+                    MachineGenerator.Halting.valueOf(options.getOrDefault(
+                            "halting", "scan").toUpperCase()),
+                    options.getOrDefault("symbols", "ab"),
+                    Long.parseLong(options.getOrDefault("seed", "1")));
+
+            File file = new File(inputs[1]);
+            long commands;
+            try (Writer out = new BufferedWriter(new FileWriter(file))) {
+                commands = generator.writeMachine(out);
+            }
+            System.out.println("Wrote " + commands + " commands to " + file);
+
+            String corpus = options.get("corpus");
+            if (corpus == null) {
+                return;
+            }
+            TuringMachine machine = TuringMachineFactory.loadFromFile(file);
+            int amount = Integer.parseInt(options.getOrDefault("words",
+                    "1000"));
+            List<String> words = generator.generateCorpus(machine, amount,
+                    options.getOrDefault("lengths", "uniform:1-20"),
+                    Double.parseDouble(options.getOrDefault("accept", "-1")));
+            try (Writer out = new BufferedWriter(new FileWriter(corpus))) {
+                for (String word : words) {
+                    out.write(word);
+                    out.write('\n');
+                }
+            }
+            System.out.println("Wrote " + words.size() + " words to "
+                    + corpus);
+            if (words.size() < amount) {
+                error("Accept ratio not reached!");
+            }
+        } catch (IllegalArgumentException e) {
+            error("Invalid option value!");
+        } catch (ParseException e) {
+            error("Parsing not possible!");
+        } catch (IOException e) {
+            error("Fault at IO!");
+        }
+    }
+
+    /**
+     * Side method reading a file of words, one word per line. Empty lines
+     * are skipped.
+     * @param fileName the name of the file.
+     * @return the words.
+     * @throws IOException If the file cannot be read.
+     */
+    private static List<String> readWords(String fileName)
+            throws IOException {
+        List<String> toReturn = new ArrayList<>();
+        try (BufferedReader reader
+                     = new BufferedReader(new FileReader(fileName))) {
+            String line = reader.readLine();
+            while (line != null) {
+                if (!line.trim().isEmpty()) {
+                    toReturn.add(line.trim());
+                }
+                line = reader.readLine();
+            }
+        }
+        return toReturn;
+    }
+
+    /**
+     * Side method profiling the current machine and saving the layout of
+     * its States next to its file, used from its next load on. Options are
+     * given as name=value: words (file with one word per line instead of
+     * generated words), samples and length of the generated words, symbols,
+     * seed and maxSteps per word.
+     * @param inputs the options.
+     * @param registry
+     * @param current the name of the current machine.
+     */
+    private static void commandOrder(String[] inputs,
+                                     MachineRegistry registry,
+                                     String current) {
+        TuringMachine turingMachine
+                = detMachine(currentMachine(registry, current));
+        if (!(turingMachine instanceof DetTuringMachine)) {
+            error("No machine loaded!");
+            return;
+        }
+        Map<String, String> options = options(inputs, 1);
+        if (options == null) {
+            return;
+        }
+
+        DetTuringMachine machine = (DetTuringMachine) turingMachine;
+        try {
+            List<String> words;
+            String corpus = options.get("words");
+            if (corpus != null) {
+                words = readWords(corpus);
+            } else {
+                words = ComplexityProfiler.words(
+                        options.getOrDefault("symbols",
+                                ComplexityProfiler.inputSymbols(machine)),
+                        Integer.parseInt(options.getOrDefault("length", "16")),
+                        Integer.parseInt(options.getOrDefault("samples",
+                                "1000")),
+                        new Random(Long.parseLong(
+                                options.getOrDefault("seed", "1"))));
+            }
+
+            StateLayout layout = StateLayout.profile(machine, words,
+                    Long.parseLong(options.getOrDefault("maxSteps",
+                            Long.toString(Long.MAX_VALUE))));
+            File target = StateLayout.fileOf(registry.fileOf(current));
+            layout.write(target);
+            System.out.println("Layout of " + machine.getStateCount()
+                    + " States, " + layout.getHotCount() + " hot, written to "
+                    + target);
+        } catch (IllegalArgumentException e) {
+            error("Invalid option value!");
+        } catch (FileNotFoundException e) {
+            error("No file found!");
+        } catch (IOException e) {
+            error("Fault at IO!");
+        }
+    }
+
+    /**
+     * Side method comparing the current machine with another loaded one on
+     * all words up to a length, or on a random sample of them, and printing
+     * a word they differ on. Options are given as name=value: length,
+     * samples (amount of random words instead of all words), seed, symbols,
+     * maxSteps (step budget of every run) and threads.
+     * @param inputs the name of the other machine followed by the options.
+     * @param registry
+     * @param current the name of the current machine.
+     */
+    private static void commandEquivalence(String[] inputs,
+                                           MachineRegistry registry,
+                                           String current) {
+        if (!validAmount(inputs, 2)) {
+            error("Wrong amount of input!");
+            return;
+        } else if (!registry.isKnown(inputs[1])) {
+            error("Unknown machine!");
+            return;
+        }
+        TuringMachine firstMachine
+                = detMachine(currentMachine(registry, current));
+        TuringMachine secondMachine
+                = detMachine(currentMachine(registry, inputs[1]));
+        if (!(firstMachine instanceof DetTuringMachine)
+                || !(secondMachine instanceof DetTuringMachine)) {
+            error("No machine loaded!");
+            return;
+        }
+        Map<String, String> options = options(inputs, 2);
+        if (options == null) {
+            return;
+        }
+
+        DetTuringMachine first = (DetTuringMachine) firstMachine;
+        DetTuringMachine second = (DetTuringMachine) secondMachine;
+        //Symbols read by any of both machines
+        StringBuilder symbols = new StringBuilder(
+                ComplexityProfiler.inputSymbols(first));
+        for (char symbol
+                : ComplexityProfiler.inputSymbols(second).toCharArray()) {
+            if (symbols.indexOf(String.valueOf(symbol)) < 0) {
+                symbols.append(symbol);
+            }
+        }
+
+        ForkJoinPool pool = null;
+        try {
+            EquivalenceChecker checker = new EquivalenceChecker(first, second,
+                    options.getOrDefault("symbols", symbols.toString()),
+                    Long.parseLong(options.getOrDefault("maxSteps",
+                            "100000")));
+            int length = Integer.parseInt(options.getOrDefault("length",
+                    "8"));
+            if (length < 0) {
+                error("The length must not be negative!");
+                return;
+            }
+            int samples = Integer.parseInt(options.getOrDefault("samples",
+                    "-1"));
+            long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+            pool = new ForkJoinPool(Integer.parseInt(options.getOrDefault(
+                    "threads", Integer.toString(
+                            Runtime.getRuntime().availableProcessors()))));
+
+            long start = System.nanoTime();
+            EquivalenceChecker.Counterexample difference = samples >= 0
+                    ? checker.compareSample(length, samples, seed, pool)
+                    : checker.compareAll(length, pool);
+            System.out.println(checker.getCompared() + " words compared, "
+                    + checker.getUndecided() + " over budget, "
+                    + (System.nanoTime() - start) / 1000000 + " ms");
+            if (difference != null) {
+                error("Machines differ on " + difference);
+            } else {
+                System.out.println("No difference up to length " + length
+                        + ".");
+            }
+        } catch (IllegalArgumentException e) {
+            error("Invalid option value!");
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Side method serving the loaded machines over a socket, see
+     * MachineServer for the protocol. "serve [port=n]" starts the server,
+     * "serve stop" stops it and "serve request (request)" sends a single
+     * request to the running server and prints the answer.
+     * @param inputs the command and its arguments.
+     * @param registry the machines to serve.
+     * @param server the running server, null if none is running.
+     * @return the running server after the command, null if none is running.
+     */
+    private static MachineServer commandServe(String[] inputs,
+                                              MachineRegistry registry,
+                                              MachineServer server) {
+        String action = inputs.length < 2 || inputs[1].contains("=")
+                ? "" : inputs[1].toLowerCase();
+        if (action.equals("stop")) {
+            if (server == null) {
+                error("No server running!");
+            } else {
+                server.close();
+                System.out.println("Server stopped.");
+            }
+            return null;
+        } else if (action.equals("request")) {
+            if (server == null) {
+                error("No server running!");
+            } else if (inputs.length < 3) {
+                error("Wrong amount of input!");
+            } else {
+                request(server.getPort(), String.join(" ",
+                        Arrays.copyOfRange(inputs, 2, inputs.length)));
+            }
+            return server;
+        } else if (!action.isEmpty()) {
+            error("Unknown command.");
+            return server;
+        } else if (server != null) {
+            error("Already serving on port " + server.getPort() + "!");
+            return server;
+        }
+
+        Map<String, String> options = options(inputs, 1);
+        if (options == null) {
+            return null;
+        }
+        int port;
+        try {
+            port = Integer.parseInt(options.getOrDefault("port", "0"));
+        } catch (NumberFormatException e) {
+            error("Invalid option value!");
+            return null;
+        }
+        if (port < 0 || port > 65535) {
+            error("Invalid port!");
+            return null;
+        }
+        try {
+            MachineServer toReturn = new MachineServer(port, registry);
+            toReturn.start();
+            System.out.println("Serving the loaded machines on port "
+                    + toReturn.getPort());
+            return toReturn;
+        } catch (IOException e) {
+            error("Port not available!");
+            return null;
+        }
+    }
+
+    /**
+     * Side method sending one request to a server on the loopback address
+     * and printing the answer.
+     * @param port the port of the server.
+     * @param request the request line.
+     */
+    private static void request(int port, String request) {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+                port);
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                     socket.getOutputStream(), StandardCharsets.UTF_8), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(
+                     socket.getInputStream(), StandardCharsets.UTF_8))) {
+            out.println(request);
+            String answer = in.readLine();
+            System.out.println(answer == null ? "Connection closed." : answer);
+        } catch (IOException e) {
+            error("Request failed!");
+        }
+    }
+
+    /**
+     * Side method searching the inputs making the machine run the most
+     * steps or reach the most cells and printing them, worst first.
+     * Options are given as name=value: length (maximum length of the
+     * inputs), metric (steps or cells), top (amount of inputs printed),
+     * runs, threads, symbols, maxSteps (step budget of every run) and seed.
+     * @param inputs the options.
+     * @param turingMachine
+     */
+    private static void commandSearch(String[] inputs,
+                                      TuringMachine turingMachine) {
+        if (!(turingMachine instanceof DetTuringMachine)) {
+            error("No machine loaded!");
+            return;
+        }
+        Map<String, String> options = options(inputs, 1);
+        if (options == null) {
+            return;
+        }
+
+        DetTuringMachine machine = (DetTuringMachine) turingMachine;
+        try {
+            String symbols = options.getOrDefault("symbols",
+                    ComplexityProfiler.inputSymbols(machine));
+            int top = Integer.parseInt(options.getOrDefault("top", "10"));
+            if (symbols.isEmpty()) {
+                error("No symbols to search with!");
+                return;
+            } else if (top < 1) {
+                error("At least one input must be searched!");
+                return;
+            }
+            WorstCaseSearch.Metric metric = WorstCaseSearch.Metric.valueOf(
+                    options.getOrDefault("metric", "steps").toUpperCase());
+            WorstCaseSearch search = new WorstCaseSearch(machine, symbols,
+                    Integer.parseInt(options.getOrDefault("length", "32")),
+                    Long.parseLong(options.getOrDefault("maxSteps",
+                            "1000000")),
+                    metric);
+
+            long start = System.nanoTime();
+            List<WorstCaseSearch.Case> found = search.search(top,
+                    Long.parseLong(options.getOrDefault("runs", "100000")),
+                    Integer.parseInt(options.getOrDefault("threads",
+                            Integer.toString(Runtime.getRuntime()
+                                    .availableProcessors()))),
+                    Long.parseLong(options.getOrDefault("seed", "1")));
+
+            System.out.println("# " + search.getCoveredCommands() + " of "
+                    + machine.getCommandCount() + " Commands covered, "
+                    + search.getCoveredBuckets() + " buckets, "
+                    + (System.nanoTime() - start) / 1000000 + " ms");
+            System.out.println("rank,steps,cells,halted,word");
+            for (int i = 0; i < found.size(); i++) {
+                System.out.println((i + 1) + "," + found.get(i));
+            }
+        } catch (IllegalArgumentException e) {
+            error("Invalid option value!");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error("Search interrupted!");
+        }
+    }
+
+    /**
+     * Side method profiling how the steps and cells of the machine grow
+     * with the length of the input and printing the profile. Options are
+     * given as name=value: from, to and by for the lengths, samples,
+     * symbols, seed, words (file of words instead of generated ones),
+     * maxSteps, format (csv or json) and out (file instead of printing).
+     * @param inputs the options.
+     * @param turingMachine
+     */
+    private static void commandMeasure(String[] inputs,
+                                       TuringMachine turingMachine) {
+        if (!(turingMachine instanceof DetTuringMachine)) {
+            error("No machine loaded!");
+            return;
+        }
+        Map<String, String> options = options(inputs, 1);
+        if (options == null) {
+            return;
+        }
+
+        DetTuringMachine machine = (DetTuringMachine) turingMachine;
+        try {
+            ComplexityProfiler profiler = new ComplexityProfiler(machine,
+                    Long.parseLong(options.getOrDefault("maxSteps",
+                            Long.toString(Long.MAX_VALUE))));
+            List<ComplexityProfiler.Sample> samples;
+            String corpus = options.get("words");
+            if (corpus != null) {
+                Map<Integer, List<String>> words = new TreeMap<>();
+                for (String word : readWords(corpus)) {
+                    words.computeIfAbsent(word.length(),
+                            length -> new ArrayList<>()).add(word);
+                }
+                samples = profiler.profile(words);
+            } else {
+                int from = Integer.parseInt(options.getOrDefault("from",
+                        "1"));
+                int to = Integer.parseInt(options.getOrDefault("to", "32"));
+                int by = Integer.parseInt(options.getOrDefault("by", "1"));
+                int amount = Integer.parseInt(options.getOrDefault("samples",
+                        "256"));
+                if (from < 0 || to < from || by <= 0 || amount < 0) {
+                    error("Lengths need 0 <= from <= to and by > 0, "
+                            + "samples must not be negative!");
+                    return;
+                }
+                List<Integer> lengths = new ArrayList<>();
+                for (long n = from; n <= to; n += by) {
+                    lengths.add((int) n);
+                }
+                samples = profiler.profile(options.getOrDefault("symbols",
+                                ComplexityProfiler.inputSymbols(machine)),
+                        lengths, amount,
+                        Long.parseLong(options.getOrDefault("seed", "1")));
+            }
+
+            boolean json = "json".equals(options.getOrDefault("format",
+                    "csv"));
+            String file = options.get("out");
+            if (file == null) {
+                writeProfile(samples, json, new PrintWriter(System.out));
+            } else {
+                try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+                    writeProfile(samples, json, out);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            error("Invalid option value!");
+        } catch (FileNotFoundException e) {
+            error("No file found!");
+        } catch (IOException e) {
+            error("Fault at IO!");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error("Measuring interrupted!");
+        }
+    }
+
+    /**
+     * Side method writing a profile as CSV or JSON.
+     * @param samples the profile.
+     * @param json true for JSON, false for CSV.
+     * @param out the writer.
+     */
+    private static void writeProfile(List<ComplexityProfiler.Sample> samples,
+                                     boolean json, PrintWriter out) {
+        if (json) {
+            ComplexityProfiler.writeJson(samples, out);
+        } else {
+            ComplexityProfiler.writeCsv(samples, out);
+        }
+    }
+
+    /**
+     * Side method listing all words up to a length accepted by the machine,
+     * one per line, followed by the counters of the enumeration. Options
+     * are given as name=value: length, symbols, maxSteps (step budget of
+     * every word), threads, out (file instead of printing) and every
+     * (seconds between progress reports, 0 for none, only when writing a
+     * file).
+     * @param inputs the options.
+     * @param turingMachine
+     */
+    private static void commandWords(String[] inputs,
+                                     TuringMachine turingMachine) {
+        if (!(turingMachine instanceof DetTuringMachine)) {
+            error("No machine loaded!");
+            return;
+        }
+        Map<String, String> options = options(inputs, 1);
+        if (options == null) {
+            return;
+        }
+
+        DetTuringMachine machine = (DetTuringMachine) turingMachine;
+        String file = options.get("out");
+        ForkJoinPool pool = null;
+        Thread reporter = null;
+        try {
+            LanguageEnumerator enumerator = new LanguageEnumerator(machine,
+                    options.getOrDefault("symbols",
+                            ComplexityProfiler.inputSymbols(machine)),
+                    Long.parseLong(options.getOrDefault("maxSteps",
+                            "100000")));
+            int length = Integer.parseInt(options.getOrDefault("length",
+                    "8"));
+            if (length < 0) {
+                error("The length must not be negative!");
+                return;
+            }
+            long every = file == null ? 0 : (long) (1000 * Double.parseDouble(
+                    options.getOrDefault("every", "1")));
+            pool = new ForkJoinPool(Integer.parseInt(options.getOrDefault(
+                    "threads", Integer.toString(
+                            Runtime.getRuntime().availableProcessors()))));
+
+            //Reporting the progress until the enumeration is done
+            reporter = new Thread(() -> {
+                try {
+                    while (every > 0) {
+                        Thread.sleep(every);
+                        LanguageEnumerator.Progress current
+                                = enumerator.getProgress();
+                        if (current != null) {
+                            System.out.println(current);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    //Done
+                }
+            }, "LanguageEnumerator progress");
+            reporter.setDaemon(true);
+            reporter.start();
+
+            LanguageEnumerator.Progress done;
+            if (file == null) {
+                done = enumerator.enumerate(length, new BufferedWriter(
+                        new OutputStreamWriter(System.out)), pool);
+            } else {
+                try (Writer out = new BufferedWriter(new FileWriter(file))) {
+                    done = enumerator.enumerate(length, out, pool);
+                }
+            }
+            reporter.interrupt();
+            System.out.println(done);
+        } catch (IllegalArgumentException e) {
+            error("Invalid option value!");
+        } catch (IOException e) {
+            error("Fault at IO!");
+        } finally {
+            if (reporter != null) {
+                reporter.interrupt();
+            }
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
     /**
      * Side method gathering the String from the TuringMachine and printing
      * the result.
      * @param turingMachine
      */
-    private static void commandPrint(TuringMachine turingMachine) {
+    private static void commandPrint(LoadedMachine turingMachine) {
         String allCmds = turingMachine.toString();
         String[] parts = allCmds.split("[)]");
 
@@ -224,16 +1334,93 @@ public final class Shell {
         }
     }
 
+    /**
+     * Side method handling the tracing of runs. Enables or disables tracing,
+     * writes the trace of the latest run into a file or prints it.
+     * @param inputs "on", "off", a file name or nothing for printing.
+     * @param turingMachine
+     */
+    private static void commandTrace(String[] inputs,
+                                     TuringMachine turingMachine) {
+        if (!(turingMachine instanceof DetTuringMachine)) {
+            error("No machine to trace!");
+            return;
+        }
+        DetTuringMachine machine = (DetTuringMachine) turingMachine;
+        TraceRecorder recorder = machine.getTraceRecorder();
+
+        if (validAmount(inputs, 2)) {
+            if (inputs[1].equalsIgnoreCase("on")) {
+                machine.setTraceRecorder(new TraceRecorder(TRACE_CAPACITY));
+            } else if (inputs[1].equalsIgnoreCase("off")) {
+                machine.setTraceRecorder(null);
+            } else if (recorder == null) {
+                error("Tracing is disabled!");
+            } else {
+                try {
+                    recorder.writeTo(new File(inputs[1]));
+                } catch (IOException e) {
+                    error("Fault at IO!");
+                }
+            }
+        } else if (recorder == null) {
+            error("Tracing is disabled!");
+        } else {
+            for (String line : TraceReader.decode(recorder, machine)) {
+                System.out.println(line);
+            }
+        }
+    }
+
     /**
      * Method printing out a list of Commands available.
      */
     private static void commandHelp() {
         System.out.println("Available commands:");
-        System.out.println("Load a new machine: insert (TuringMachineFile)");
+        System.out.println("Load a new machine: insert (TuringMachineFile)"
+                + " [name] [tiered=runs before promotion]");
+        System.out.println("Switch to a loaded machine: use (name)");
+        System.out.println("Listing all loaded machines: list");
         System.out.println("Run a word to get the result: run (word to run)");
         System.out.println("Check if the machine accepts a certain word: "
                 + "check (word to be checked");
+        System.out.println("Check all words of a file, one per line: "
+                + "batch (file), on worker processes: batch (file) "
+                + "[workers=n] [out=file] [port=n] [chunk=n] [timeout=ms] "
+                + "[window=n] [jvm=-Xmx1g,...]");
+        System.out.println("Debugging a run step by step, forward and "
+                + "backward: debug (word)");
         System.out.println("Printing out all commands: print");
+        System.out.println("Memory shared by all loaded machines: footprint"
+                + ", with the heap after a collection: footprint gc");
+        System.out.println("Checking that runs do not allocate: "
+                + "allocation (word of at least a million steps, blocks "
+                + "like a^3b^2 allowed)");
+        System.out.println("Generating a machine and words for it: "
+                + "generate (file) [states=n] [tapes=n] [density=d] "
+                + "[halting=scan|sweep] [symbols=ab] [seed=n] [corpus=file] "
+                + "[words=n] [lengths=uniform:1-20] [accept=ratio]");
+        System.out.println("Tracing runs: trace (on | off | file to write)"
+                + ", printing the latest run: trace");
+        System.out.println("Comparing with another loaded machine: "
+                + "equivalence (name) [length=n] [samples=n] [seed=n] "
+                + "[symbols=ab] [maxSteps=n] [threads=n]");
+        System.out.println("Serving the loaded machines on a socket: serve "
+                + "[port=n], stopping it: serve stop, sending it a request: "
+                + "serve request (check | run) (name) (word)");
+        System.out.println("Searching the slowest inputs: search "
+                + "[length=n] [metric=steps|cells] [top=k] [runs=n] "
+                + "[threads=n] [symbols=ab] [maxSteps=n] [seed=n]");
+        System.out.println("Measuring the growth of steps and cells: "
+                + "measure [from=n] [to=n] [by=n] [samples=n] [symbols=ab] "
+                + "[seed=n] [words=file] [maxSteps=n] [format=csv|json] "
+                + "[out=file]");
+        System.out.println("Listing the accepted words: words [length=n] "
+                + "[symbols=ab] [maxSteps=n] [threads=n] [out=file] "
+                + "[every=seconds]");
+        System.out.println("Saving the layout of the States for the next "
+                + "load: order [words=file] [samples=n] [length=n] "
+                + "[symbols=ab] [seed=n] [maxSteps=n]");
         System.out.println("Exiting the TuringMachine and Input: quit");
     }
 
@@ -244,11 +1431,14 @@ public final class Shell {
      * @param machine the current machine.
      * @return true if matching, false otherwise.
      */
-    public static boolean isValidKey(String toVal, TuringMachine machine) {
-        char first = TuringMachine.FIRST_CHAR;
-        char last = TuringMachine.LAST_CHAR;
-        String charsRex = ".*[" + first + "-" + last + "].*";
-        return toVal.matches(charsRex);
+    public static boolean isValidKey(String toVal, LoadedMachine machine) {
+        Alphabet alphabet = machine.getAlphabet();
+        for (int i = 0; i < toVal.length(); i++) {
+            if (alphabet.isInputSymbol(toVal.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
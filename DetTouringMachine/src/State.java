@@ -11,6 +11,15 @@ public class State {
     //0 if none, 1 if only stopState, 2 if stop- and acceptingState
     private final int stopClass;
     private ArrayList<Command> commands;
+    //Positions of the Commands in the Turing program of this machine, the
+    //Commands themselves may be shared with other machines
+    private int[] programIndexes = new int[2];
+    //Index of the Commands, null if not built or not possible
+    private CommandIndex index;
+    //false if no accepting State can be reached from this State
+    private boolean canAccept = true;
+    //Commands shared with other machines, null if not shared
+    private TransitionPool.CommandSet shared;
 
     /**
      * Constructor method for States
@@ -66,9 +75,144 @@ public class State {
     /**
      * Adding a created Command to the list of available Commands.
      * @param cmd
+     * @param programIndex position of the Command in the Turing program.
      */
-    public void addCommand(Command cmd) {
+    public void addCommand(Command cmd, int programIndex) {
+        //Shared lists are never changed
+        if (shared != null) {
+            commands = new ArrayList<>(commands);
+            shared = null;
+        }
+        if (commands.size() == programIndexes.length) {
+            programIndexes = Arrays.copyOf(programIndexes,
+                    2 * programIndexes.length);
+        }
+        programIndexes[commands.size()] = programIndex;
         commands.add(cmd);
+        index = null;
+    }
+
+    /**
+     * @param position the position of a Command in the list of Commands.
+     * @return the position of the Command in the Turing program.
+     */
+    int getProgramIndex(int position) {
+        return programIndexes[position];
+    }
+
+    /**
+     * Replacing the Commands and their index by the equal ones shared with
+     * other machines by the given pool.
+     * @param pool the pool.
+     * @param radix amount of different symbols on a tape.
+     */
+    void share(TransitionPool pool, int radix) {
+        //Holding the set keeps it in the pool as long as this State lives
+        shared = pool.intern(
+                new TransitionPool.CommandSet(commands, index, radix));
+        commands = (ArrayList<Command>) shared.getCommands();
+        index = shared.getIndex();
+    }
+
+    /**
+     * @return false if no accepting State can be reached from this State.
+     */
+    public boolean canAccept() {
+        return canAccept;
+    }
+
+    /**
+     * Setting if an accepting State can be reached from this State.
+     * @param canAccept
+     */
+    void setCanAccept(boolean canAccept) {
+        this.canAccept = canAccept;
+    }
+
+    /**
+     * @return the index of the Commands, null if there is none.
+     */
+    public CommandIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Building the index of the Commands, unless the given State of a
+     * previous version of the machine has the same Commands in the same
+     * order and thus its index can be shared.
+     * @param previous the State of the previous version, may be null.
+     * @param radix amount of different symbols on a tape.
+     * @return true if the index was built, false if it was shared.
+     */
+    boolean buildIndex(State previous, int radix) {
+        return buildIndex(previous, radix, false);
+    }
+
+    /**
+     * Building the index of the Commands like
+     * {@link #buildIndex(State, int)}, as a direct table if wanted and
+     * possible (see CommandIndex). The Commands are sorted by the symbols
+     * they read first, so equal States of variants listing their Commands
+     * in another order get the same list and index.
+     * @param previous the State of the previous version, may be null.
+     * @param radix amount of different symbols on a tape.
+     * @param direct true for preferring a direct table.
+     * @return true if the index was built, false if it was shared.
+     */
+    boolean buildIndex(State previous, int radix, boolean direct) {
+        sortCommands();
+        if (previous != null && previous.index != null
+                && previous.index.isDirect() == direct
+                && hasSameCommands(previous)) {
+            index = previous.index;
+            return false;
+        }
+        index = CommandIndex.build(commands, radix, direct);
+        return true;
+    }
+
+    /**
+     * Side method sorting the Commands by the symbols they read, together
+     * with their positions in the Turing program. Commands reading the
+     * same symbols keep their order, so the first fitting one stays the
+     * same.
+     */
+    private void sortCommands() {
+        Integer[] order = new Integer[commands.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        //Stable, see Arrays.sort
+        Arrays.sort(order, (first, second) -> commands.get(first)
+                .compareReads(commands.get(second)));
+
+        ArrayList<Command> sorted = new ArrayList<>(order.length);
+        int[] sortedIndexes = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted.add(commands.get(order[i]));
+            sortedIndexes[i] = programIndexes[order[i]];
+        }
+        commands = sorted;
+        programIndexes = sortedIndexes;
+        shared = null;
+        index = null;
+    }
+
+    /**
+     * Side method comparing the Commands of this and another State.
+     * @param other the other State.
+     * @return true if both have the same shared Commands in the same order.
+     */
+    private boolean hasSameCommands(State other) {
+        if (id != other.id || commands.size() != other.commands.size()) {
+            return false;
+        }
+        for (int i = 0; i < commands.size(); i++) {
+            if (commands.get(i) != other.commands.get(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
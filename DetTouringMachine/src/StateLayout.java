@@ -0,0 +1,311 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Layout of the States of a machine in its transition table, found by
+ * profiling which Commands are executed how often in a warm-up run.
+ *
+ * The States are ordered in chains: starting with the most visited State
+ * not yet placed, each State is followed by its most often reached
+ * successor not yet placed. The rows of a CompiledAutomaton are numbered
+ * in that order, so a State and the State usually executed next lie next
+ * to each other in its table. The most visited States, together making up
+ * {@link #HOT_SHARE} of all steps, are hot and get a direct index (see
+ * CommandIndex) if their keys fit.
+ *
+ * The IDs of the States do not change, they are part of the Turing program
+ * and its output. The layout is saved next to the machine file (see
+ * {@link #fileOf(File)}) by the Shell command "order" and used by
+ * TuringMachineFactory on every following load of the file.
+ */
+final class StateLayout {
+
+    /**
+     * Share of all profiled steps executed in hot States.
+     */
+    static final double HOT_SHARE = 0.9;
+
+    /**
+     * Suffix of the layout file of a machine file.
+     */
+    static final String SUFFIX = ".layout";
+
+    private static final String ORDER_KEYWORD = "order";
+    private static final String HOT_KEYWORD = "hot";
+
+    //IDs of the States in the order of the layout
+    private final int[] order;
+    //true for hot States, indexed by ID
+    private final boolean[] hot;
+    //Amount of Commands of the profiled machine, to detect changed files
+    private final int commands;
+
+    /**
+     * Constructor method for a layout.
+     * @param order the IDs of all States in the order of the layout.
+     * @param hot true for hot States, indexed by ID.
+     * @param commands the amount of Commands of the machine.
+     */
+    private StateLayout(int[] order, boolean[] hot, int commands) {
+        this.order = order;
+        this.hot = hot;
+        this.commands = commands;
+    }
+
+    /**
+     * Finds the layout of a machine by running it on the given words and
+     * counting how often every Command is executed.
+     * @param machine the machine.
+     * @param words the words of the warm-up run.
+     * @param maxSteps the maximum amount of steps per word.
+     * @return the layout.
+     */
+    static StateLayout profile(DetTuringMachine machine, List<String> words,
+                               long maxSteps) {
+        long[] hits = new long[machine.getCommandCount()];
+        for (String word : words) {
+            Configuration conf = machine.createConfiguration(word);
+            long step = 0;
+            int next = machine.nextIndex(conf);
+            while (next >= 0 && step < maxSteps) {
+                hits[next]++;
+                conf.setState(machine.getState(machine.getCommand(next)
+                        .execute(conf.getInputTape(), conf.getTapes())));
+                step++;
+                next = machine.nextIndex(conf);
+            }
+        }
+        return of(machine, hits);
+    }
+
+    /**
+     * Computes the layout from the amount of executions of every Command.
+     * @param machine the machine.
+     * @param hits the executions, indexed by Command index.
+     * @return the layout.
+     */
+    static StateLayout of(DetTuringMachine machine, long[] hits) {
+        int amount = machine.getStateCount();
+        long[] visits = new long[amount];
+        //Successors of every State, with the Commands leading there
+        List<Map<Integer, Long>> edges = new ArrayList<>();
+        for (int i = 0; i < amount; i++) {
+            edges.add(new HashMap<>());
+        }
+        long total = 0;
+        for (int i = 0; i < hits.length; i++) {
+            Command cmd = machine.getCommand(i);
+            visits[cmd.getOrigin()] += hits[i];
+            edges.get(cmd.getOrigin()).merge(cmd.getTarget(), hits[i],
+                    Long::sum);
+            total += hits[i];
+        }
+
+        Integer[] byVisits = new Integer[amount];
+        for (int i = 0; i < amount; i++) {
+            byVisits[i] = i;
+        }
+        Arrays.sort(byVisits, Comparator.comparingLong(
+                (Integer state) -> -visits[state]));
+
+        //The hottest States up to the share of all steps
+        boolean[] hot = new boolean[amount];
+        long covered = 0;
+        for (int state : byVisits) {
+            if (covered >= HOT_SHARE * total || visits[state] == 0) {
+                break;
+            }
+            hot[state] = true;
+            covered += visits[state];
+        }
+
+        boolean[] placed = new boolean[amount];
+        int[] order = new int[amount];
+        int length = 0;
+        for (int first : byVisits) {
+            int current = first;
+            while (current >= 0 && !placed[current]) {
+                placed[current] = true;
+                order[length++] = current;
+                current = hottestSuccessor(edges.get(current), placed);
+            }
+        }
+        return new StateLayout(order, hot, machine.getCommandCount());
+    }
+
+    /**
+     * Side method searching the most often reached successor of a State
+     * that is not placed yet.
+     * @param successors the successors with the amount of steps to them.
+     * @param placed true for placed States.
+     * @return the ID of the successor, -1 if there is none.
+     */
+    private static int hottestSuccessor(Map<Integer, Long> successors,
+                                        boolean[] placed) {
+        int toReturn = -1;
+        long most = 0;
+        for (Map.Entry<Integer, Long> edge : successors.entrySet()) {
+            int target = edge.getKey();
+            long steps = edge.getValue();
+            if (!placed[target] && (steps > most
+                    || steps == most && steps > 0 && target < toReturn)) {
+                toReturn = target;
+                most = steps;
+            }
+        }
+        return toReturn;
+    }
+
+    /**
+     * @return the IDs of the States in the order of the layout.
+     */
+    int[] getOrder() {
+        return order.clone();
+    }
+
+    /**
+     * @param state the ID of a State.
+     * @return true if the State is hot.
+     */
+    boolean isHot(int state) {
+        return hot[state];
+    }
+
+    /**
+     * @return the amount of hot States.
+     */
+    int getHotCount() {
+        int toReturn = 0;
+        for (boolean isHot : hot) {
+            if (isHot) {
+                toReturn++;
+            }
+        }
+        return toReturn;
+    }
+
+    /**
+     * @param machineFile the file of a machine.
+     * @return the file the layout of the machine is saved in.
+     */
+    static File fileOf(File machineFile) {
+        return new File(machineFile.getPath() + SUFFIX);
+    }
+
+    /**
+     * Writes the layout: the amount of States and Commands, the IDs of all
+     * States in the order of the layout and the IDs of the hot States.
+     * @param file the file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    void write(File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            out.println("# State layout, generated by StateLayout");
+            out.println(order.length + " " + commands);
+            StringBuilder line = new StringBuilder(ORDER_KEYWORD);
+            for (int state : order) {
+                line.append(' ').append(state);
+            }
+            out.println(line);
+            line = new StringBuilder(HOT_KEYWORD);
+            for (int state : order) {
+                if (hot[state]) {
+                    line.append(' ').append(state);
+                }
+            }
+            out.println(line);
+        }
+    }
+
+    /**
+     * Reads the layout of a machine written by {@link #write(File)}.
+     * @param file the file of the layout.
+     * @param machine the machine with all Commands added.
+     * @return the layout, null if there is no file or it was written for a
+     * machine with another amount of States or Commands.
+     * @throws IOException If the file cannot be read.
+     * @throws ParseException If the file is not a valid layout.
+     */
+    static StateLayout read(File file, DetTuringMachine machine)
+            throws IOException, ParseException {
+        if (!file.isFile()) {
+            return null;
+        }
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line = reader.readLine();
+            while (line != null) {
+                if (!line.trim().startsWith("#")) {
+                    lines.add(line.trim());
+                }
+                line = reader.readLine();
+            }
+        }
+        if (lines.size() != 3 || !lines.get(1).startsWith(ORDER_KEYWORD)
+                || !lines.get(2).startsWith(HOT_KEYWORD)) {
+            throw new ParseException("Invalid layout file!", 0);
+        }
+
+        int[] counts = parseIds(lines.get(0), "");
+        if (counts.length != 2 || counts[0] != machine.getStateCount()
+                || counts[1] != machine.getCommandCount()) {
+            return null;
+        }
+        int amount = counts[0];
+        int[] order = parseIds(lines.get(1), ORDER_KEYWORD);
+        boolean[] seen = new boolean[amount];
+        for (int state : order) {
+            if (state < 0 || state >= amount || seen[state]) {
+                throw new ParseException("Invalid order of States!", 0);
+            }
+            seen[state] = true;
+        }
+        if (order.length != amount) {
+            throw new ParseException("Invalid order of States!", 0);
+        }
+        boolean[] hot = new boolean[amount];
+        for (int state : parseIds(lines.get(2), HOT_KEYWORD)) {
+            if (state < 0 || state >= amount) {
+                throw new ParseException("Invalid hot State!", 0);
+            }
+            hot[state] = true;
+        }
+        return new StateLayout(order, hot, counts[1]);
+    }
+
+    /**
+     * Side method parsing the numbers of a line after its keyword.
+     * @param line the line.
+     * @param keyword the keyword at the start of the line.
+     * @return the numbers.
+     * @throws ParseException If a number is invalid.
+     */
+    private static int[] parseIds(String line, String keyword)
+            throws ParseException {
+        String rest = line.substring(keyword.length()).trim();
+        if (rest.isEmpty()) {
+            return new int[0];
+        }
+        String[] parts = rest.split("\\s+");
+        int[] toReturn = new int[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                toReturn[i] = Integer.parseInt(parts[i]);
+            }
+        } catch (NumberFormatException e) {
+            throw new ParseException("Invalid number in layout file!", 0);
+        }
+        return toReturn;
+    }
+}
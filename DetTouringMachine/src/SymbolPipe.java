@@ -0,0 +1,128 @@
+/**
+ * Bounded buffer handing the codes of symbols from one stage of a
+ * MachinePipeline to the next.
+ *
+ * The codes are written once into a shared ring and appended from there to
+ * the InputTape of the next stage, without Strings in between. Written codes
+ * become visible to the reader only when published, so the writer pays for
+ * synchronization once per batch instead of once per symbol. Only one
+ * thread may write and one thread may read.
+ */
+final class SymbolPipe {
+
+    private final byte[] ring;
+    private final int mask;
+    //Amount of codes written, published and read so far
+    private long written;
+    private volatile long published;
+    private volatile long read;
+    private volatile boolean closed;
+    //true once the reader needs no more codes
+    private volatile boolean abandoned;
+
+    /**
+     * Constructor method for an empty pipe.
+     * @param capacity the minimum amount of codes buffered.
+     */
+    SymbolPipe(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.ring = new byte[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Writing a code, waiting while the ring is full. Codes written after
+     * the reader abandoned the pipe are dropped.
+     * @param code the code of the symbol.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    void put(byte code) throws InterruptedException {
+        if (written - read == ring.length) {
+            publish();
+            synchronized (this) {
+                while (written - read == ring.length && !abandoned) {
+                    wait();
+                }
+            }
+        }
+        if (abandoned) {
+            return;
+        }
+        ring[(int) (written & mask)] = code;
+        written++;
+    }
+
+    /**
+     * Making all written codes visible to the reader.
+     */
+    void publish() {
+        if (published != written) {
+            synchronized (this) {
+                published = written;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Publishing all written codes and marking the end of the symbols.
+     */
+    void close() {
+        synchronized (this) {
+            published = written;
+            closed = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Marking that the reader needs no more codes, so the writer neither
+     * waits nor needs to produce them.
+     */
+    void abandon() {
+        synchronized (this) {
+            abandoned = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * @return true if the reader needs no more codes.
+     */
+    boolean isAbandoned() {
+        return abandoned;
+    }
+
+    /**
+     * Appending all published codes to the input of an InputTape, waiting
+     * until there is at least one or the pipe is closed.
+     * @param tape the incomplete InputTape.
+     * @return the amount of codes appended, -1 if the pipe is closed and
+     * all codes were read.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    int drainTo(InputTape tape) throws InterruptedException {
+        long available = published;
+        if (available == read) {
+            synchronized (this) {
+                while (published == read && !closed) {
+                    wait();
+                }
+                available = published;
+            }
+            if (available == read) {
+                return -1;
+            }
+        }
+
+        long from = read;
+        for (long i = from; i < available; i++) {
+            tape.appendInput(ring[(int) (i & mask)]);
+        }
+        synchronized (this) {
+            read = available;
+            notifyAll();
+        }
+        return (int) (available - from);
+    }
+}
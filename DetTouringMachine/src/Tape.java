@@ -1,76 +1,282 @@
-import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Tape class for WorkTapes.
- * "Endlessness" by adding up blanks if necessary.
+ * Stores the codes of the symbols (see Alphabet), "Endlessness" by growing
+ * the storage with blanks in both directions if necessary. The codes are
+ * stored one per byte; subclasses may store them differently by
+ * overriding the access to the storage (see PackedTape).
  */
 public class Tape {
 
-    private ArrayList<Character> tapeContent;
+    private static final int INITIAL_SIZE = 16;
+
+    //Codes of the cells, null if a subclass stores them
+    private byte[] cells;
+    //Position of the pointer within cells
     private int pointer;
+    //Position of the first symbol the tape was filled with within cells
+    private int origin;
+    //First and last cell reached so far, the last one always being blank
+    private int first;
+    private int last;
 
     /**
      * Constructor method for WorkTapes.
      */
     Tape() {
-        this.tapeContent = new ArrayList<>();
-        this.tapeContent.add(DetTuringMachine.BLANK_CHAR);
-        pointer = 0;
+        this.cells = new byte[INITIAL_SIZE];
+        this.pointer = 0;
+        this.origin = 0;
+        this.first = 0;
+        this.last = 0;
+    }
+
+    /**
+     * Constructor method for WorkTapes reserving storage for the given amount
+     * of cells in both directions, so long runs do not need to grow it.
+     * @param reserved amount of cells reserved in each direction.
+     */
+    Tape(int reserved) {
+        this.cells = new byte[Math.max(INITIAL_SIZE, 2 * reserved + 1)];
+        this.pointer = cells.length / 2;
+        this.origin = pointer;
+        this.first = pointer;
+        this.last = pointer;
+    }
+
+    /**
+     * Constructor method for Tapes filled with the given codes, the pointer
+     * at the first of them.
+     * @param content the codes of the symbols.
+     */
+    Tape(byte[] content) {
+        this.cells = Arrays.copyOf(content,
+                Math.max(INITIAL_SIZE, content.length * 2));
+        this.pointer = 0;
+        this.origin = 0;
+        this.first = 0;
+        this.last = Math.max(content.length - 1, 0);
+    }
+
+    /**
+     * Constructor method copying the content and pointer of another Tape.
+     * @param other the Tape to copy.
+     */
+    Tape(Tape other) {
+        this.cells = other.cells == null ? null : other.cells.clone();
+        this.pointer = other.pointer;
+        this.origin = other.origin;
+        this.first = other.first;
+        this.last = other.last;
+    }
+
+    /**
+     * Constructor method for blank Tapes on the given storage, with the
+     * pointer at the given cell.
+     * @param cells the storage, null for subclasses storing the codes
+     *              themselves.
+     * @param pointer the position of the pointer within the storage.
+     */
+    Tape(byte[] cells, int pointer) {
+        this.cells = cells;
+        this.pointer = pointer;
+        this.origin = pointer;
+        this.first = pointer;
+        this.last = pointer;
+    }
+
+    /**
+     * @return a copy of the content and pointer of this Tape.
+     */
+    Tape copy() {
+        return new Tape(this);
+    }
+
+    /**
+     * @return the amount of cells in the storage.
+     */
+    int capacity() {
+        return cells.length;
+    }
+
+    /**
+     * @param index a cell of the storage.
+     * @return the code stored in the cell.
+     */
+    byte cell(int index) {
+        return cells[index];
+    }
+
+    /**
+     * Storing a code in a cell of the storage.
+     * @param index the cell.
+     * @param code the code.
+     */
+    void setCell(int index, byte code) {
+        cells[index] = code;
+    }
+
+    /**
+     * Doubling the storage, the new cells being blank.
+     * @param front true to add the new cells in front, false behind.
+     */
+    void growStorage(boolean front) {
+        byte[] grown = new byte[cells.length * 2];
+        System.arraycopy(cells, 0, grown, front ? cells.length : 0,
+                cells.length);
+        cells = grown;
+    }
+
+    /**
+     * Side method growing the storage, keeping the content at its place
+     * relative to the pointer.
+     * @param front true to add the new cells in front, false behind.
+     */
+    private void grow(boolean front) {
+        int shift = front ? capacity() : 0;
+        growStorage(front);
+        pointer += shift;
+        origin += shift;
+        first += shift;
+        last += shift;
     }
 
     /**
      * Method moving the pointer down one position.
      */
     public void movePointerDown() {
-        //"Endlessness" through adding blank char
+        //"Endlessness" through adding blank cells
         if (pointer == 0) {
-            tapeContent.add(0, DetTuringMachine.BLANK_CHAR);
-        } else {
-            pointer--;
+            grow(true);
+        }
+        if (pointer == first) {
+            first--;
         }
+        pointer--;
     }
 
     /**
      * Method moving the pointer up one position.
      */
     public void movePointerUp() {
-        //"Endlessness" through adding blank char
-        if (pointer == tapeContent.size() - 1) {
-            tapeContent.add(DetTuringMachine.BLANK_CHAR);
+        //"Endlessness" through adding blank cells
+        if (pointer == capacity() - 1) {
+            grow(false);
+        }
+        if (pointer == last) {
+            last++;
         }
-
         pointer++;
     }
 
     /**
-     * Inserting a new character at the current position of the pointer.
-     * @param symbol
+     * Writing a new symbol at the current position of the pointer.
+     * @param code the code of the symbol.
      */
-    public void addNewChar(char symbol) {
-        //Overwriting the current character if necessary
-        if (pointer != tapeContent.size() - 1) {
-            tapeContent.remove(pointer);
+    public void addNewChar(byte code) {
+        setCell(pointer, code);
+        //Keeping a blank behind the last written symbol
+        if (pointer == last) {
+            if (last == capacity() - 1) {
+                grow(false);
+            }
+            last++;
         }
-        tapeContent.add(pointer, symbol);
     }
 
     /**
-     *
-     * @return the tape printed as String with all characters/symbols.
+     * @param alphabet the alphabet of the codes on the tape.
+     * @return the tape printed as String with all characters/symbols
+     * reached so far.
      */
-    public String getTapeAsString() {
-        String toReturn = "";
-        for (int i = 0; i < tapeContent.size(); i++) {
-            toReturn = toReturn + tapeContent.get(i);
+    public String getTapeAsString(Alphabet alphabet) {
+        StringBuilder toReturn = new StringBuilder(last - first + 1);
+        for (int i = first; i <= last; i++) {
+            toReturn.append(alphabet.decode(cell(i)));
         }
-        return toReturn;
+        return toReturn.toString();
     }
 
     /**
      *
-     * @return the char currently pointed at by the pointer.
+     * @return the code of the symbol currently pointed at by the pointer.
+     */
+    public byte getCurrent() {
+        return cell(pointer);
+    }
+
+    /**
+     * Restoring a code at the current position of the pointer, e.g. when
+     * undoing a step. The cells reached so far are not changed.
+     * @param code the code of the symbol.
+     */
+    void restoreCurrent(byte code) {
+        setCell(pointer, code);
+    }
+
+    /**
+     * @return the position of the pointer within the String returned by
+     * {@link #getTapeAsString(Alphabet)}.
+     */
+    int getPointerOffset() {
+        return pointer - first;
+    }
+
+    /**
+     * @return the amount of cells reached so far.
      */
-    public char getCurrent() {
-        return tapeContent.get(pointer);
+    public int getUsedCells() {
+        return last - first + 1;
+    }
+
+    /**
+     * @return the position of the pointer relative to the first symbol the
+     * tape was filled with.
+     */
+    int getPosition() {
+        return pointer - origin;
+    }
+
+    /**
+     * @return the position of the first cell reached so far, relative to
+     * the first symbol the tape was filled with.
+     */
+    int getFirstPosition() {
+        return first - origin;
+    }
+
+    /**
+     * @return the position of the last cell reached so far, relative to
+     * the first symbol the tape was filled with.
+     */
+    int getLastPosition() {
+        return last - origin;
+    }
+
+    /**
+     * @param position a position relative to the first symbol the tape was
+     *                 filled with, within the cells reached so far.
+     * @return the code of the symbol at the position.
+     */
+    byte getAt(int position) {
+        return cell(origin + position);
+    }
+
+    /**
+     * Writing a code at a position relative to the first symbol the tape was
+     * filled with, without moving the pointer.
+     * @param position the position, not in front of the first symbol.
+     * @param code the code of the symbol.
+     */
+    void setAt(int position, byte code) {
+        while (origin + position + 1 >= capacity()) {
+            grow(false);
+        }
+        int index = origin + position;
+        setCell(index, code);
+        if (index >= last) {
+            last = index + 1;
+        }
     }
-}
\ No newline at end of file
+}
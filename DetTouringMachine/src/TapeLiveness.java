@@ -0,0 +1,197 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Analysis finding the tapes of a machine whose content never decides which
+ * Command is executed. Such a dead tape only matters for the output of a
+ * simulation, an acceptance check can run without it.
+ *
+ * A tape is dead if, in every State and for every combination of symbols on
+ * the InputTape and the other tapes, either no Command fits whatever the
+ * tape holds, or the fitting Commands for all symbols that can be on the
+ * tape agree in target State, input move and the effects on all other
+ * tapes. The symbols that can be read on a tape are the blank and all
+ * symbols written to it. If every Command moving the head of a tape moves
+ * it in the same direction and every Command not moving it writes a blank,
+ * the head only ever reaches untouched cells and reads nothing but blanks,
+ * like the output tape of most machines. Commands reading other symbols
+ * never fit.
+ */
+final class TapeLiveness {
+
+    //Marking the symbol of the analysed tape in a key
+    private static final char ANY = Character.MAX_VALUE;
+
+    /**
+     * Utility class constructor preventing instantiation.
+     */
+    private TapeLiveness() {
+        throw new UnsupportedOperationException(
+                "Illegal call of utility class constructor.");
+    }
+
+    /**
+     * Finds the dead tapes of a machine.
+     * @param machine the machine with all Commands added.
+     * @param amountTapes amount of tapes, the output tape included.
+     * @return for every tape, the output tape first, true if it is dead.
+     */
+    static boolean[] findDeadTapes(DetTuringMachine machine,
+                                   int amountTapes) {
+        boolean[][] readable = readableSymbols(machine, amountTapes);
+        boolean[] toReturn = new boolean[amountTapes];
+        for (int tape = 0; tape < amountTapes; tape++) {
+            toReturn[tape] = isDead(machine, tape, readable);
+        }
+        return toReturn;
+    }
+
+    /**
+     * Checks if a Command can ever fit, i.e., reads only symbols that can
+     * be read on the tapes.
+     * @param cmd the Command.
+     * @param readable the symbols that can be read on every tape.
+     * @return true if the Command can fit.
+     */
+    static boolean canFit(Command cmd, boolean[][] readable) {
+        for (int i = 0; i < cmd.getTapeCount(); i++) {
+            byte read = cmd.getTapeChar(i);
+            if (read < 0 || !readable[i][read]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collects the symbols that can be read on every tape: only the blank
+     * if the head never returns to a written cell, otherwise the blank and
+     * all symbols written to the tape by a Command.
+     * @param machine the machine.
+     * @param amountTapes amount of tapes, the output tape included.
+     * @return for every tape and code, true if it can be read on the tape.
+     */
+    static boolean[][] readableSymbols(DetTuringMachine machine,
+                                       int amountTapes) {
+        boolean[][] toReturn
+                = new boolean[amountTapes][machine.getAlphabet().size()];
+        //Directions the head of every tape moves in, 0 if never moving
+        int[] direction = new int[amountTapes];
+        boolean[] returning = new boolean[amountTapes];
+        for (int i = 0; i < amountTapes; i++) {
+            toReturn[i][Alphabet.BLANK] = true;
+        }
+
+        for (int i = 0; i < machine.getCommandCount(); i++) {
+            Command cmd = machine.getCommand(i);
+            for (int tape = 0; tape < amountTapes; tape++) {
+                byte newChar = cmd.getNewChar(tape);
+                if (newChar >= 0) {
+                    toReturn[tape][newChar] = true;
+                }
+                int move = cmd.getPointerMove(tape).getMoveInt();
+                if (move == 0) {
+                    returning[tape] |= newChar != Alphabet.BLANK;
+                } else if (direction[tape] == 0) {
+                    direction[tape] = move;
+                } else {
+                    returning[tape] |= direction[tape] != move;
+                }
+            }
+        }
+
+        for (int tape = 0; tape < amountTapes; tape++) {
+            if (!returning[tape]) {
+                Arrays.fill(toReturn[tape], false);
+                toReturn[tape][Alphabet.BLANK] = true;
+            }
+        }
+        return toReturn;
+    }
+
+    /**
+     * Side method checking if a single tape is dead.
+     * @param machine the machine.
+     * @param tape the position of the tape, 0 for the output tape.
+     * @param readable the symbols that can be read on every tape.
+     * @return true if the tape is dead.
+     */
+    private static boolean isDead(DetTuringMachine machine, int tape,
+                                  boolean[][] readable) {
+        int symbols = 0;
+        for (boolean symbol : readable[tape]) {
+            if (symbol) {
+                symbols++;
+            }
+        }
+
+        for (int id = 0; id < machine.getStateCount(); id++) {
+            State state = machine.getState(id);
+            //Only the first fitting Command for the same symbols is executed
+            Map<String, Command> first = new HashMap<>();
+            //Commands grouped by all read symbols except on the tape
+            Map<String, Map<Byte, Command>> groups = new HashMap<>();
+            for (Command cmd : state.getCommands()) {
+                if (!canFit(cmd, readable)
+                        || first.putIfAbsent(key(cmd, -1), cmd) != null) {
+                    continue;
+                }
+                groups.computeIfAbsent(key(cmd, tape), k -> new HashMap<>())
+                        .put(cmd.getTapeChar(tape), cmd);
+            }
+
+            for (Map<Byte, Command> group : groups.values()) {
+                if (group.size() != symbols) {
+                    return false;
+                }
+                Command some = group.values().iterator().next();
+                for (Command other : group.values()) {
+                    if (!sameEffects(some, other, tape)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Side method combining the symbols read by a Command into a key.
+     * @param cmd the Command.
+     * @param any the tape whose symbol is left out, -1 for none.
+     * @return the key.
+     */
+    private static String key(Command cmd, int any) {
+        char[] toReturn = new char[cmd.getTapeCount() + 1];
+        toReturn[0] = (char) cmd.getInputChar();
+        for (int i = 0; i < cmd.getTapeCount(); i++) {
+            toReturn[i + 1] = i == any ? ANY : (char) cmd.getTapeChar(i);
+        }
+        return new String(toReturn);
+    }
+
+    /**
+     * Side method comparing the effects of two Commands on everything but
+     * the given tape.
+     * @param first the first Command.
+     * @param second the second Command.
+     * @param tape the tape whose effects are ignored.
+     * @return true if the effects are the same.
+     */
+    private static boolean sameEffects(Command first, Command second,
+                                       int tape) {
+        if (first.getTarget() != second.getTarget()
+                || first.getInputPointerMove()
+                != second.getInputPointerMove()) {
+            return false;
+        }
+        for (int i = 0; i < first.getTapeCount(); i++) {
+            if (i != tape && (first.getNewChar(i) != second.getNewChar(i)
+                    || first.getPointerMove(i) != second.getPointerMove(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
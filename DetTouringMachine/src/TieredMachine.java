@@ -0,0 +1,252 @@
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Turing machine starting in the interpreter and promoted to a faster form
+ * once it is used a lot.
+ *
+ * A freshly loaded machine only has its States and Commands: runs look up
+ * every Command in the list of its State, without indexes or traces, so
+ * loading is cheap. The statistics of the machine count its runs and
+ * steps. Once it ran {@link #HOT_RUNS} times, or as often as given when
+ * loading, or {@link #HOT_STEPS} steps,
+ * a copy of the program is optimized on a background thread like a machine
+ * loaded by {@link TuringMachineFactory#loadFromFile(File)}, and the
+ * analysis of the program decides the form check and simulate get:
+ * <ul>
+ *     <li>indexed lookup of the Commands and traces of hot loops
+ *     (see CommandIndex and TraceJit), for every machine,</li>
+ *     <li>a layout of the States, read from the file saved with the
+ *     machine or, for machines of at least {@link #LAYOUT_STATES} States,
+ *     profiled on the latest inputs (see StateLayout),</li>
+ *     <li>check without dead tapes, or as a finite automaton if the program
+ *     allows it (see TapeLiveness and CompiledAutomaton).</li>
+ * </ul>
+ * The optimized machine is published atomically: runs already started
+ * finish in the interpreter, runs started afterwards use the new form.
+ * Both give the same results, so callers of check and simulate do not see
+ * the swap.
+ */
+public final class TieredMachine implements LoadedMachine {
+
+    /**
+     * Forms a machine runs in.
+     */
+    public enum Tier {
+        /**
+         * Commands looked up in the list of their State.
+         */
+        INTERPRETER,
+        /**
+         * Commands looked up in indexes, hot loops traced.
+         */
+        INDEXED,
+        /**
+         * Like {@link #INDEXED}, but check runs a finite automaton.
+         */
+        AUTOMATON
+    }
+
+    /**
+     * Runs after which a machine is promoted.
+     */
+    static final int HOT_RUNS = 1000;
+
+    /**
+     * Steps after which a machine is promoted.
+     */
+    static final long HOT_STEPS = 1000000;
+
+    /**
+     * Minimum amount of States for profiling a layout.
+     */
+    static final int LAYOUT_STATES = 64;
+
+    //Latest inputs kept for profiling the layout
+    private static final int SAMPLES = 64;
+    //Steps per input when profiling the layout
+    private static final long PROFILE_STEPS = 100000;
+
+    //Thread promoting the machines, one at a time
+    private static final ExecutorService PROMOTER
+            = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "dtm-promoter");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final DetTuringMachine interpreter;
+    private final File file;
+    private final AtomicReferenceArray<String> samples
+            = new AtomicReferenceArray<>(SAMPLES);
+    private final int hotRuns;
+    private final AtomicBoolean promoting = new AtomicBoolean();
+    //Promotion started, null before
+    private volatile Future<?> promotion;
+    private volatile DetTuringMachine current;
+    private volatile Tier tier = Tier.INTERPRETER;
+    private volatile boolean profiled;
+    //Failure of the promotion, null if none
+    private volatile Throwable failure;
+
+    /**
+     * Constructor method for a machine in the interpreter.
+     * @param interpreter the machine with all Commands added, not
+     *                    optimized.
+     * @param file the file of the machine.
+     * @param hotRuns the runs after which the machine is promoted.
+     */
+    TieredMachine(DetTuringMachine interpreter, File file, int hotRuns) {
+        this.interpreter = interpreter;
+        this.file = file;
+        this.hotRuns = hotRuns;
+        this.current = interpreter;
+    }
+
+    /**
+     * @return the form the machine currently runs in.
+     */
+    public Tier getTier() {
+        return tier;
+    }
+
+    /**
+     * @return true if the layout of the promoted machine was profiled on
+     * the latest inputs.
+     */
+    public boolean isProfiled() {
+        return profiled;
+    }
+
+    /**
+     * @return the failure of the promotion, which left the machine in the
+     * interpreter, null if there was none.
+     */
+    public Throwable getPromotionFailure() {
+        return failure;
+    }
+
+    /**
+     * @return the machine currently running check and simulate.
+     */
+    public DetTuringMachine getMachine() {
+        return current;
+    }
+
+    @Override
+    public Alphabet getAlphabet() {
+        return interpreter.getAlphabet();
+    }
+
+    @Override
+    public String simulate(String input) {
+        DetTuringMachine machine = current;
+        String toReturn = machine.simulate(input);
+        if (machine == interpreter) {
+            interpreted(input);
+        }
+        return toReturn;
+    }
+
+    @Override
+    public boolean check(String input) {
+        DetTuringMachine machine = current;
+        boolean toReturn = machine.check(input);
+        if (machine == interpreter) {
+            interpreted(input);
+        }
+        return toReturn;
+    }
+
+    /**
+     * Side method counting a run of the interpreter, promoting the machine
+     * once it is hot.
+     * @param input the input of the run.
+     */
+    private void interpreted(String input) {
+        MachineStats stats = interpreter.getStats();
+        long runs = stats.getRuns();
+        samples.set((int) (runs % SAMPLES), input);
+        if ((runs >= hotRuns || stats.getSteps() >= HOT_STEPS)
+                && promoting.compareAndSet(false, true)) {
+            promotion = PROMOTER.submit(this::promote);
+        }
+    }
+
+    /**
+     * Waits until the promotion of the machine is finished, if it was
+     * started.
+     */
+    public void awaitPromotion() {
+        Future<?> pending = promotion;
+        if (pending == null) {
+            return;
+        }
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            //Failures are kept by promote
+        }
+    }
+
+    /**
+     * Side method promoting the machine. If building the optimized machine
+     * fails, the failure is reported and the machine stays in the
+     * interpreter for good: promoting is not tried again.
+     */
+    private void promote() {
+        try {
+            optimize();
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            System.err.println("Error! Promoting " + file + " failed, "
+                    + "staying in the interpreter: " + e);
+        }
+    }
+
+    /**
+     * Side method building the optimized machine and publishing it.
+     */
+    private void optimize() {
+        DetTuringMachine promoted = interpreter.copyProgram();
+        StateLayout layout;
+        try {
+            layout = StateLayout.read(StateLayout.fileOf(file), promoted);
+        } catch (IOException | ParseException e) {
+            //Running without the saved layout
+            layout = null;
+        }
+        if (layout == null && promoted.getStateCount() >= LAYOUT_STATES) {
+            List<String> words = new ArrayList<>();
+            for (int i = 0; i < SAMPLES; i++) {
+                String word = samples.get(i);
+                if (word != null) {
+                    words.add(word);
+                }
+            }
+            layout = StateLayout.profile(promoted, words, PROFILE_STEPS);
+            profiled = true;
+        }
+        TuringMachineFactory.optimize(promoted, layout, null);
+        promoted.getStats().register(file.getPath());
+
+        current = promoted;
+        tier = promoted.getAutomaton() != null ? Tier.AUTOMATON : Tier.INDEXED;
+    }
+
+    @Override
+    public String toString() {
+        return current.toString();
+    }
+}
@@ -0,0 +1,230 @@
+/**
+ * Tracing compiler of the hot loops of a machine, used while it runs.
+ *
+ * Every time the interpreter enters a State, the State gets hotter. Once a
+ * State is entered {@link #HOT_LOOP} times, the following steps of the run
+ * are recorded until the run returns to that State. The recorded Commands
+ * form a loop through the machine, which is compiled into a Trace: a
+ * straight sequence of guards and effects without any lookup of Commands.
+ * Whenever a run enters the first State of a Trace, the Trace is executed
+ * instead of the interpreter. Each step guards that the symbols under the
+ * heads are the ones read when recording, so the same Command would fit,
+ * and applies the precomputed writes and moves. Guards known to hold
+ * because an earlier step of the same pass wrote the symbol without moving
+ * the head are left out. A failing guard leaves the Trace and the
+ * interpreter continues in the State of that step.
+ *
+ * Traces are bytecode-free: no bytecode library is available, so instead
+ * of generating a hidden class per Trace the guards and effects are held in
+ * flat arrays executed by one small loop, which the JVM compiles like any
+ * other hot method. Loops longer than {@link #MAX_TRACE} steps are not
+ * traced. Heat and Traces are shared by all runs of the machine; races
+ * between threads only lose heat or record a loop twice.
+ */
+final class TraceJit {
+
+    /**
+     * Entries of a State until the loop starting there is recorded.
+     */
+    static final int HOT_LOOP = 256;
+
+    /**
+     * Maximum amount of steps of a Trace.
+     */
+    static final int MAX_TRACE = 512;
+
+    //Recordings of a State failing before it is no longer recorded
+    private static final int MAX_ATTEMPTS = 4;
+
+    private final DetTuringMachine machine;
+    private final int[] heat;
+    private final byte[] attempts;
+    //Trace starting in every State, null if there is none
+    private final Trace[] traces;
+
+    /**
+     * Constructor method for the compiler of a machine.
+     * @param machine the machine.
+     * @param states the amount of States of the machine.
+     */
+    TraceJit(DetTuringMachine machine, int states) {
+        this.machine = machine;
+        this.heat = new int[states];
+        this.attempts = new byte[states];
+        this.traces = new Trace[states];
+    }
+
+    /**
+     * @param state the ID of a State.
+     * @return the Trace starting in the State, null if there is none.
+     */
+    Trace traceAt(int state) {
+        return traces[state];
+    }
+
+    /**
+     * Counts an entry of a State by the interpreter.
+     * @param state the ID of the State.
+     * @return a new Recording of the loop starting in the State if it just
+     * became hot, null otherwise.
+     */
+    Recording enter(int state) {
+        if (++heat[state] < HOT_LOOP || attempts[state] >= MAX_ATTEMPTS) {
+            return null;
+        }
+        heat[state] = 0;
+        attempts[state]++;
+        return new Recording(state);
+    }
+
+    /**
+     * Recording of the Commands executed since a hot State was entered.
+     */
+    final class Recording {
+        private final int start;
+        private final Command[] commands = new Command[MAX_TRACE];
+        private int length;
+
+        private Recording(int start) {
+            this.start = start;
+        }
+
+        /**
+         * Records an executed Command. Once it leads back to the first
+         * State, the loop is compiled into a Trace.
+         * @param cmd the Command.
+         * @return true if the recording continues, false if it ended.
+         */
+        boolean record(Command cmd) {
+            if (length == MAX_TRACE) {
+                return false;
+            }
+            commands[length++] = cmd;
+            if (cmd.getTarget() != start) {
+                return true;
+            }
+            if (traces[start] == null) {
+                traces[start] = new Trace(machine, commands, length);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Compiled loop through the machine, starting and ending in the same
+     * State.
+     */
+    static final class Trace {
+        private final int length;
+        private final int amountTapes;
+        //States of all steps
+        private final State[] states;
+        //Codes read on the InputTape and on the tapes, per step
+        private final byte[] inputs;
+        private final byte[] reads;
+        //false for guards known to hold
+        private final boolean[] guardInput;
+        private final boolean[] guards;
+        //Codes written and moves of the tapes, per step
+        private final byte[] writes;
+        private final byte[] moves;
+        private final byte[] inputMoves;
+        //true if an accepting State can be reached from all States
+        private final boolean canAccept;
+
+        /**
+         * Constructor method compiling the recorded Commands.
+         * @param machine the machine.
+         * @param commands the Commands, leading back to the first State.
+         * @param length the amount of Commands.
+         */
+        private Trace(DetTuringMachine machine, Command[] commands,
+                      int length) {
+            this.length = length;
+            this.amountTapes = commands[0].getTapeCount();
+            this.states = new State[length];
+            this.inputs = new byte[length];
+            this.reads = new byte[length * amountTapes];
+            this.guardInput = new boolean[length];
+            this.guards = new boolean[length * amountTapes];
+            this.writes = new byte[length * amountTapes];
+            this.moves = new byte[length * amountTapes];
+            this.inputMoves = new byte[length];
+
+            boolean all = true;
+            for (int i = 0; i < length; i++) {
+                Command cmd = commands[i];
+                states[i] = machine.getState(cmd.getOrigin());
+                all &= states[i].canAccept();
+                inputs[i] = cmd.getInputChar();
+                inputMoves[i] = (byte) cmd.getInputPointerMove().getMoveInt();
+                //Unmoved heads read what the step before left there
+                guardInput[i] = i == 0 || inputMoves[i - 1] != 0;
+                for (int t = 0; t < amountTapes; t++) {
+                    int slot = i * amountTapes + t;
+                    reads[slot] = cmd.getTapeChar(t);
+                    writes[slot] = cmd.getNewChar(t);
+                    moves[slot] = (byte) cmd.getPointerMove(t).getMoveInt();
+                    guards[slot] = i == 0 || moves[slot - amountTapes] != 0;
+                }
+            }
+            this.canAccept = all;
+        }
+
+        /**
+         * @return true if an accepting State can be reached from all
+         * States of the Trace.
+         */
+        boolean canAccept() {
+            return canAccept;
+        }
+
+        /**
+         * Executes the Trace as long as all guards hold, starting in its
+         * first State. The Configuration ends in the State of the step
+         * whose guard failed.
+         * @param conf the Configuration in the first State.
+         * @param step the amount of steps executed so far.
+         * @param maxSteps the amount of steps the run stops at.
+         * @return the amount of steps executed after the Trace.
+         */
+        long execute(Configuration conf, long step, long maxSteps) {
+            InputTape inputTape = conf.getInputTape();
+            Tape[] tapes = conf.getTapes();
+            int i = 0;
+            while (step < maxSteps && !inputTape.isBeyondKnownInput()) {
+                if (guardInput[i] && inputTape.getCurrent() != inputs[i]) {
+                    break;
+                }
+                int slot = i * amountTapes;
+                boolean fits = true;
+                for (int t = 0; t < amountTapes && fits; t++) {
+                    fits = !guards[slot + t]
+                            || tapes[t].getCurrent() == reads[slot + t];
+                }
+                if (!fits) {
+                    break;
+                }
+
+                for (int t = 0; t < amountTapes; t++) {
+                    Tape tape = tapes[t];
+                    tape.addNewChar(writes[slot + t]);
+                    if (moves[slot + t] > 0) {
+                        tape.movePointerUp();
+                    } else if (moves[slot + t] < 0) {
+                        tape.movePointerDown();
+                    }
+                }
+                if (inputMoves[i] > 0) {
+                    inputTape.movePointerUp();
+                } else if (inputMoves[i] < 0) {
+                    inputTape.movePointerDown();
+                }
+                step++;
+                i = i + 1 == length ? 0 : i + 1;
+            }
+            conf.setState(states[i]);
+            return step;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reader decoding traces written by a TraceRecorder back into the Commands
+ * of the traced machine.
+ */
+public final class TraceReader {
+
+    /**
+     * Utility class constructor preventing instantiation.
+     */
+    private TraceReader() {
+        throw new UnsupportedOperationException(
+                "Illegal call of utility class constructor.");
+    }
+
+    /**
+     * Loads a trace file written by {@link TraceRecorder#writeTo(File)}.
+     *
+     * @param file The trace file.
+     * @return A recorder holding all records of the file.
+     * @throws IOException If an IO error occurs or the file is no trace.
+     */
+    public static TraceRecorder readFromFile(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != TraceRecorder.FILE_MAGIC) {
+                throw new IOException("No trace file: " + file);
+            }
+
+            int amount = in.readInt();
+            TraceRecorder toReturn = new TraceRecorder(Math.max(amount, 1));
+            for (int i = 0; i < amount; i++) {
+                long step = in.readLong();
+                long stateAndCmd = in.readLong();
+                long moves = in.readLong();
+                toReturn.record(step, (int) (stateAndCmd >>> 32),
+                        (int) stateAndCmd, moves);
+            }
+            return toReturn;
+        }
+    }
+
+    /**
+     * Decodes all records of a trace into lines of the form
+     * {@code step: command}, the Command printed as by
+     * {@link Command#commandToString()}.
+     *
+     * @param trace The recorded trace.
+     * @param machine The machine the trace was recorded on.
+     * @return The decoded lines, oldest step first.
+     */
+    public static List<String> decode(TraceRecorder trace,
+                                      DetTuringMachine machine) {
+        List<String> toReturn = new ArrayList<>(trace.size());
+        for (int i = 0; i < trace.size(); i++) {
+            Command cmd = machine.getCommand(trace.getCommandIndex(i));
+            String printed;
+            if (cmd == null) {
+                printed = "unknown command " + trace.getCommandIndex(i)
+                        + " in state " + trace.getState(i);
+            } else {
+                printed = cmd.commandToString();
+            }
+            toReturn.add(trace.getStep(i) + ": " + printed);
+        }
+        return toReturn;
+    }
+
+    /**
+     * Decodes the packed head moves of a record.
+     *
+     * @param moves The packed moves.
+     * @param heads The amount of heads, the input head included.
+     * @return The moves, the input head move first.
+     */
+    public static Direction[] decodeMoves(long moves, int heads) {
+        Direction[] toReturn = new Direction[Math.min(heads, 32)];
+        for (int i = 0; i < toReturn.length; i++) {
+            toReturn[i] = Direction.values()[(int) (moves >>> (2 * i)) & 3];
+        }
+        return toReturn;
+    }
+}
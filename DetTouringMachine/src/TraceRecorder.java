@@ -0,0 +1,160 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Recorder storing the executed steps of a run as fixed-width records in a
+ * ring buffer. Once the buffer is full, the oldest records are overwritten.
+ *
+ * Every record consists of three longs: the step number, the State-ID
+ * combined with the index of the executed Command and the head moves of the
+ * Command. The moves are packed with two bits per head (0 = left, 1 = stop,
+ * 2 = right), the InputTape head in the lowest bits followed by the heads of
+ * the WorkTapes.
+ */
+public class TraceRecorder {
+
+    /**
+     * Amount of longs per record.
+     */
+    static final int RECORD_LONGS = 3;
+
+    /**
+     * Magic number at the start of a trace file.
+     */
+    static final int FILE_MAGIC = 0x44544d54;
+
+    private final long[] buffer;
+    private final int capacity;
+    //Amount of records written since the last clear, including overwritten
+    private long recorded;
+
+    /**
+     * Constructor method for TraceRecorders.
+     * @param capacity maximum amount of records kept.
+     */
+    public TraceRecorder(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive!");
+        }
+        this.capacity = capacity;
+        this.buffer = new long[capacity * RECORD_LONGS];
+        this.recorded = 0;
+    }
+
+    /**
+     * Appending the record of an executed Command.
+     * @param step number of the step within the run.
+     * @param cmd the Command executed in this step.
+     * @param cmdIndex index of the Command in the Turing program.
+     */
+    public void record(long step, Command cmd, int cmdIndex) {
+        record(step, cmd.getOrigin(), cmdIndex, cmd.getPackedMoves());
+    }
+
+    /**
+     * Appending a record.
+     * @param step number of the step within the run.
+     * @param state ID of the State the step started from.
+     * @param cmdIndex index of the executed Command.
+     * @param moves the packed head moves.
+     */
+    public void record(long step, int state, int cmdIndex, long moves) {
+        int pos = (int) (recorded % capacity) * RECORD_LONGS;
+        buffer[pos] = step;
+        buffer[pos + 1] = ((long) state << 32) | (cmdIndex & 0xFFFFFFFFL);
+        buffer[pos + 2] = moves;
+        recorded++;
+    }
+
+    /**
+     * Removing all records.
+     */
+    public void clear() {
+        recorded = 0;
+    }
+
+    /**
+     * @return the amount of records currently kept.
+     */
+    public int size() {
+        return (int) Math.min(recorded, capacity);
+    }
+
+    /**
+     * @return the amount of records written since the last clear, including
+     * the ones overwritten.
+     */
+    public long getRecorded() {
+        return recorded;
+    }
+
+    /**
+     * Side method translating the position of a kept record, 0 being the
+     * oldest, into its position within the buffer.
+     * @param i position of the record.
+     * @return position of the first long of the record in the buffer.
+     */
+    private int bufferPos(int i) {
+        if (i < 0 || i >= size()) {
+            throw new IndexOutOfBoundsException("No record " + i + "!");
+        }
+        long absolute = recorded - size() + i;
+        return (int) (absolute % capacity) * RECORD_LONGS;
+    }
+
+    /**
+     * @param i position of the record, 0 being the oldest kept.
+     * @return the step number of the record.
+     */
+    public long getStep(int i) {
+        return buffer[bufferPos(i)];
+    }
+
+    /**
+     * @param i position of the record, 0 being the oldest kept.
+     * @return the ID of the State the step started from.
+     */
+    public int getState(int i) {
+        return (int) (buffer[bufferPos(i) + 1] >>> 32);
+    }
+
+    /**
+     * @param i position of the record, 0 being the oldest kept.
+     * @return the index of the executed Command.
+     */
+    public int getCommandIndex(int i) {
+        return (int) buffer[bufferPos(i) + 1];
+    }
+
+    /**
+     * @param i position of the record, 0 being the oldest kept.
+     * @return the packed head moves of the record.
+     */
+    public long getMoves(int i) {
+        return buffer[bufferPos(i) + 2];
+    }
+
+    /**
+     * Writing all kept records, oldest first, into the given file. The file
+     * starts with {@code FILE_MAGIC} and the amount of records, followed by
+     * the records.
+     * @param file the file to write.
+     * @throws IOException If an IO error occurs.
+     */
+    public void writeTo(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(size());
+            for (int i = 0; i < size(); i++) {
+                int pos = bufferPos(i);
+                for (int j = 0; j < RECORD_LONGS; j++) {
+                    out.writeLong(buffer[pos + j]);
+                }
+            }
+        }
+    }
+}
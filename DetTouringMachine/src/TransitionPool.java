@@ -0,0 +1,442 @@
+import java.lang.management.ManagementFactory;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Pool sharing equal parts of the Turing programs of all loaded machines.
+ *
+ * Machines generated as variants of each other mostly consist of the same
+ * transitions. The pool keeps one instance of every distinct alphabet,
+ * Command and set of Commands of a State (together with its index), and
+ * machines use that instance instead of their own copy. Commands are equal
+ * by their content only, their position in a Turing program is kept by the
+ * States of every machine. The codes and moves of all Commands are stored
+ * as rows of fixed width in shared byte slabs instead of arrays of their
+ * own (see Command).
+ *
+ * Instances are only held weakly, so they are freed together with the last
+ * machine using them, and the rows of freed Commands are reused. Lookups
+ * do not lock, only storing a new row locks the slab of its width.
+ */
+final class TransitionPool {
+
+    /**
+     * Pool shared by all machines.
+     */
+    static final TransitionPool SHARED = new TransitionPool();
+
+    /**
+     * Commands of a State together with their index.
+     */
+    static final class CommandSet {
+        private final List<Command> commands;
+        private final CommandIndex index;
+        private final int radix;
+
+        /**
+         * Constructor method for a set of Commands.
+         * @param commands the Commands, already shared.
+         * @param index the index of the Commands, may be null.
+         * @param radix the amount of different symbols on a tape.
+         */
+        CommandSet(List<Command> commands, CommandIndex index, int radix) {
+            this.commands = commands;
+            this.index = index;
+            this.radix = radix;
+        }
+
+        /**
+         * @return the Commands.
+         */
+        List<Command> getCommands() {
+            return commands;
+        }
+
+        /**
+         * @return the index of the Commands, null if there is none.
+         */
+        CommandIndex getIndex() {
+            return index;
+        }
+
+        /**
+         * Side method comparing the Commands of two sets, which are equal
+         * if they are the same shared instances.
+         * @param other the other set.
+         * @return true if both sets are equal.
+         */
+        private boolean sameAs(CommandSet other) {
+            if (radix != other.radix
+                    || commands.size() != other.commands.size()
+                    || isDirect(index) != isDirect(other.index)) {
+                return false;
+            }
+            for (int i = 0; i < commands.size(); i++) {
+                if (commands.get(i) != other.commands.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Side method checking the kind of an index.
+         * @param index the index, may be null.
+         * @return true if the index is a direct table.
+         */
+        private static boolean isDirect(CommandIndex index) {
+            return index != null && index.isDirect();
+        }
+
+        /**
+         * @return the hash of the shared Commands.
+         */
+        private int contentHash() {
+            int toReturn = radix;
+            for (Command cmd : commands) {
+                toReturn = 31 * toReturn + System.identityHashCode(cmd);
+            }
+            return toReturn;
+        }
+    }
+
+    /**
+     * Storage of the rows of one width, in chunks that are never moved.
+     */
+    private static final class RowSlab {
+        //Rows per chunk
+        private static final int CHUNK_ROWS = 1024;
+
+        private final int width;
+        private byte[][] chunks = new byte[0][];
+        //Rows handed out so far, freed ones included
+        private int rows;
+        //Rows of freed Commands, handed out first
+        private int[] free = new int[16];
+        private int amountFree;
+
+        private RowSlab(int width) {
+            this.width = width;
+        }
+
+        /**
+         * @return a row not used by any Command.
+         */
+        private synchronized int allocate() {
+            if (amountFree > 0) {
+                return free[--amountFree];
+            }
+            if (rows == chunks.length * CHUNK_ROWS) {
+                chunks = Arrays.copyOf(chunks, chunks.length + 1);
+                chunks[chunks.length - 1] = new byte[CHUNK_ROWS * width];
+            }
+            return rows++;
+        }
+
+        /**
+         * @param row a row no longer used by any Command.
+         */
+        private synchronized void release(int row) {
+            if (amountFree == free.length) {
+                free = Arrays.copyOf(free, 2 * free.length);
+            }
+            free[amountFree++] = row;
+            //Dropping the chunks once no row is used
+            if (amountFree == rows) {
+                chunks = new byte[0][];
+                rows = 0;
+                amountFree = 0;
+            }
+        }
+
+        /**
+         * @param row an allocated row.
+         * @return the chunk holding the row.
+         */
+        private synchronized byte[] chunkOf(int row) {
+            return chunks[row / CHUNK_ROWS];
+        }
+
+        /**
+         * @param row an allocated row.
+         * @return the position of the row in its chunk.
+         */
+        private int offsetOf(int row) {
+            return (row % CHUNK_ROWS) * width;
+        }
+
+        /**
+         * @return the bytes of all chunks, with their array headers.
+         */
+        private synchronized long bytes() {
+            long toReturn = 0;
+            for (byte[] chunk : chunks) {
+                toReturn += align(16 + chunk.length);
+            }
+            return toReturn;
+        }
+    }
+
+    private final Interner<Alphabet> alphabets = new Interner<>("alphabets",
+            alphabet -> alphabet.toString().hashCode(),
+            (first, second) -> first.toString().equals(second.toString()));
+    private final Interner<Command> commands = new Interner<>("commands",
+            Command::contentHash, Command::sameAs);
+    private final Interner<CommandSet> sets = new Interner<>("state sets",
+            CommandSet::contentHash, CommandSet::sameAs);
+    //Slabs of the rows by their width
+    private final Map<Integer, RowSlab> slabs = new ConcurrentHashMap<>();
+
+    /**
+     * @param alphabet an alphabet.
+     * @return the shared equal alphabet.
+     */
+    Alphabet intern(Alphabet alphabet) {
+        return alphabets.intern(alphabet, null, -1);
+    }
+
+    /**
+     * Returns the shared Command with the given content, storing its row
+     * in the slab of its width if there is none yet.
+     * @param source
+     * @param target
+     * @param input
+     * @param tapeChars
+     * @param newChars
+     * @param pointerMoves
+     * @param inputPointerMove
+     * @param alphabet the shared alphabet of the codes.
+     * @return the shared Command.
+     */
+    Command command(int source, int target, byte input, byte[] tapeChars,
+                    byte[] newChars, Direction[] pointerMoves,
+                    Direction inputPointerMove, Alphabet alphabet) {
+        Command probe = new Command(source, target, input, tapeChars,
+                newChars, pointerMoves, inputPointerMove, alphabet);
+        Command toReturn = commands.find(probe);
+        if (toReturn != null) {
+            return toReturn;
+        }
+
+        RowSlab slab = slabs.computeIfAbsent(Command.width(tapeChars.length),
+                RowSlab::new);
+        int row = slab.allocate();
+        byte[] chunk = slab.chunkOf(row);
+        int at = slab.offsetOf(row);
+        probe.copyRow(chunk, at);
+        return commands.intern(new Command(source, target, chunk, at,
+                tapeChars.length, alphabet), slab, row);
+    }
+
+    /**
+     * @param set the Commands of a State, all shared.
+     * @return the shared equal set.
+     */
+    CommandSet intern(CommandSet set) {
+        return sets.intern(set, null, -1);
+    }
+
+    /**
+     * Reports how many instances were requested and how many are stored,
+     * the bytes of the slabs compared to rows of their own for every
+     * requested Command, and, if asked for, the heap used after a
+     * collection.
+     * @param collect true for collecting the garbage and reporting the heap
+     *                used afterwards.
+     * @return the report, one line per kind of instance, the rows and the
+     * heap if collected.
+     */
+    String report(boolean collect) {
+        StringBuilder toReturn = new StringBuilder();
+        for (Interner<?> interner : List.of(alphabets, commands, sets)) {
+            interner.expunge();
+            toReturn.append(String.format(Locale.ROOT,
+                    "%-12s %9d requested %9d stored%n", interner.name,
+                    interner.requests.sum(), interner.entries.size()));
+        }
+
+        //Rows of their own: a byte array per requested Command
+        long unshared = 0;
+        long rows = 0;
+        for (Key<Command> key : commands.entries.keySet()) {
+            if (key.slab != null && key.get() != null) {
+                unshared += key.uses.get() * align(16 + key.slab.width);
+                rows++;
+            }
+        }
+        long stored = 0;
+        for (RowSlab slab : slabs.values()) {
+            stored += slab.bytes();
+        }
+        toReturn.append(String.format(Locale.ROOT,
+                "rows: %d bytes in slabs for %d rows, %d bytes unshared, "
+                        + "%d bytes saved%n", stored, rows, unshared,
+                unshared - stored));
+
+        if (collect) {
+            ManagementFactory.getMemoryMXBean().gc();
+            toReturn.append(String.format(Locale.ROOT,
+                    "heap: %d bytes used after collection%n",
+                    ManagementFactory.getMemoryMXBean().getHeapMemoryUsage()
+                            .getUsed()));
+        }
+        return toReturn.toString().trim();
+    }
+
+    /**
+     * Rounds a size up to the 8-byte alignment of objects.
+     * @param bytes the size.
+     * @return the aligned size.
+     */
+    static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * Canonicalizing map holding its instances weakly.
+     * @param <T> the type of the instances.
+     */
+    private static final class Interner<T> {
+        private final String name;
+        private final ToIntFunction<T> hash;
+        private final BiPredicate<T, T> same;
+        private final Map<Key<T>, Key<T>> entries = new ConcurrentHashMap<>();
+        private final ReferenceQueue<T> stale = new ReferenceQueue<>();
+        //Requests of the stored instances
+        private final LongAdder requests = new LongAdder();
+
+        private Interner(String name, ToIntFunction<T> hash,
+                         BiPredicate<T, T> same) {
+            this.name = name;
+            this.hash = hash;
+            this.same = same;
+        }
+
+        /**
+         * @param value an instance.
+         * @return the stored equal instance, null if there is none.
+         */
+        private T find(T value) {
+            expunge();
+            Key<T> found = entries.get(new Key<>(value, hash.applyAsInt(value),
+                    same, null, null, -1));
+            T toReturn = found == null ? null : found.get();
+            if (toReturn != null) {
+                found.uses.incrementAndGet();
+                requests.increment();
+            }
+            return toReturn;
+        }
+
+        /**
+         * @param value an instance.
+         * @param slab the slab holding the row of the instance, null if
+         *             none.
+         * @param row the row of the instance, released if an equal
+         *            instance is stored already.
+         * @return the stored equal instance, the given one if there is none.
+         */
+        private T intern(T value, RowSlab slab, int row) {
+            expunge();
+            requests.increment();
+            Key<T> key = new Key<>(value, hash.applyAsInt(value), same, stale,
+                    slab, row);
+            while (true) {
+                Key<T> found = entries.putIfAbsent(key, key);
+                if (found == null) {
+                    return value;
+                }
+                T canonical = found.get();
+                if (canonical != null) {
+                    found.uses.incrementAndGet();
+                    if (slab != null) {
+                        slab.release(row);
+                    }
+                    return canonical;
+                }
+                //Freed, but not yet expunged: removing it and trying again
+                if (entries.remove(found, found)) {
+                    retire(found);
+                }
+            }
+        }
+
+        /**
+         * Side method removing the entries of freed instances.
+         */
+        @SuppressWarnings("unchecked")
+        private void expunge() {
+            Key<T> key = (Key<T>) stale.poll();
+            while (key != null) {
+                if (entries.remove(key, key)) {
+                    retire(key);
+                }
+                key = (Key<T>) stale.poll();
+            }
+        }
+
+        /**
+         * Side method forgetting the requests of a freed instance and
+         * releasing its row.
+         * @param key the key of the instance, no longer in the map.
+         */
+        private void retire(Key<T> key) {
+            requests.add(-key.uses.get());
+            if (key.slab != null) {
+                key.slab.release(key.row);
+            }
+        }
+    }
+
+    /**
+     * Weak key of an Interner, comparing the content of its instances.
+     * @param <T> the type of the instance.
+     */
+    private static final class Key<T> extends WeakReference<T> {
+        private final int hash;
+        private final BiPredicate<T, T> same;
+        //Slab and row of the instance, null and -1 if it has none
+        private final RowSlab slab;
+        private final int row;
+        //Amount of requests answered with the instance
+        private final AtomicLong uses = new AtomicLong(1);
+
+        private Key(T value, int hash, BiPredicate<T, T> same,
+                    ReferenceQueue<T> queue, RowSlab slab, int row) {
+            super(value, queue);
+            this.hash = hash;
+            this.same = same;
+            this.slab = slab;
+            this.row = row;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            } else if (!(other instanceof Key)) {
+                return false;
+            }
+            Key<T> key = (Key<T>) other;
+            T first = get();
+            T second = key.get();
+            return hash == key.hash && first != null && second != null
+                    && same.test(first, second);
+        }
+    }
+}
@@ -1,7 +1,7 @@
 /**
  * A small interface for Turing machines accepting formal languages.
  */
-public interface TuringMachine {
+public interface TuringMachine extends LoadedMachine {
 
     /**
      * The blank character, distinct to the alphabet.
@@ -9,14 +9,14 @@ public interface TuringMachine {
     char BLANK_CHAR = '~';
 
     /**
-     * The first character of the alphabet. Must build a continuous range with
-     * {@code LAST_CHAR}.
+     * The first character of the default alphabet. Must build a continuous
+     * range with {@code LAST_CHAR}.
      */
     char FIRST_CHAR = 'a';
 
     /**
-     * The last character of the alphabet. Must build a continuous range with
-     * {@code FIRST_CHAR}.
+     * The last character of the default alphabet. Must build a continuous
+     * range with {@code FIRST_CHAR}.
      */
     char LAST_CHAR = 'z';
 
@@ -52,30 +52,4 @@ public interface TuringMachine {
                     int targetState, Direction inputTapeHeadMove,
                     char[] newTapeChars, Direction[] tapeHeadMoves);
 
-    /**
-     * Simulates the machine, i.e., computes and returns the output string for a
-     * given input word.
-     *
-     * @param input The input word.
-     * @return The content of the output tape after the machine has run.
-     */
-    String simulate(String input);
-
-    /**
-     * Checks if the given input word is accepted by the machine.
-     *
-     * @param input The input word.
-     * @return {@code true}, if and only if the input is accepted.
-     */
-    boolean check(String input);
-
-    /**
-     * Returns the Turing program as string. The commands are ordered
-     * lexicographically.
-     *
-     * @return The Turing program.
-     */
-    @Override
-    String toString();
-
 }
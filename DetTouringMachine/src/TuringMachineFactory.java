@@ -12,6 +12,10 @@ import java.util.Set;
  *
  * For a simplification of the exercise, we assume that format and content of
  * the passed file is correct. 
+ *
+ * The accepting states may be followed by an optional line
+ * {@code alphabet <symbols>} declaring the alphabet of the machine, e.g.
+ * {@code alphabet a-z0-9#}. Without it, the default alphabet is used.
  */
 public final class TuringMachineFactory {
 
@@ -28,6 +32,8 @@ public final class TuringMachineFactory {
 
     private static final String DELIMITER = " ";
 
+    private static final String ALPHABET_KEYWORD = "alphabet";
+
     /**
      * Utility class constructor preventing instantiation.
      */
@@ -48,8 +54,106 @@ public final class TuringMachineFactory {
      */
     public static TuringMachine loadFromFile(File file)
             throws FileNotFoundException, IOException, ParseException {
-        TuringMachine turingMachine = null;
+        return loadFromFile(file, null);
+    }
+
+    /**
+     * Loads a new version of a Turing machine program from a given file.
+     * States whose commands did not change compared to the previous version
+     * share its indexes instead of building new ones.
+     *
+     * @param file The input file.
+     * @param previous The previous version of the machine, may be null.
+     * @return The Turing machine using the given program.
+     * @throws FileNotFoundException If the input file could not be found.
+     * @throws IOException If an IO error occurs.
+     * @throws ParseException If the file is not using the expected format.
+     */
+    public static TuringMachine loadFromFile(File file, TuringMachine previous)
+            throws FileNotFoundException, IOException, ParseException {
+        MachineLoadEvent event = new MachineLoadEvent();
+        event.begin();
+
+        DetTuringMachine turingMachine = readProgram(file);
+        // Read optional layout saved with the machine.
+        optimize(turingMachine, StateLayout.read(StateLayout.fileOf(file),
+                turingMachine), previous instanceof DetTuringMachine
+                ? (DetTuringMachine) previous : null);
+
+        commitLoad(event, file, turingMachine);
+        turingMachine.getStats().register(file.getPath());
+
+        return turingMachine;
+    }
 
+    /**
+     * Loads a Turing machine program from a given file into a tiered
+     * machine, which starts by interpreting the program and builds the
+     * faster forms once the machine is used a lot (see TieredMachine).
+     *
+     * @param file The input file.
+     * @return The tiered machine using the given program.
+     * @throws FileNotFoundException If the input file could not be found.
+     * @throws IOException If an IO error occurs.
+     * @throws ParseException If the file is not using the expected format.
+     */
+    public static TieredMachine loadTiered(File file)
+            throws FileNotFoundException, IOException, ParseException {
+        return loadTiered(file, TieredMachine.HOT_RUNS);
+    }
+
+    /**
+     * Loads a Turing machine program from a given file into a tiered
+     * machine promoted after the given amount of runs.
+     *
+     * @param file The input file.
+     * @param hotRuns The runs after which the machine is promoted.
+     * @return The tiered machine using the given program.
+     * @throws FileNotFoundException If the input file could not be found.
+     * @throws IOException If an IO error occurs.
+     * @throws ParseException If the file is not using the expected format.
+     */
+    public static TieredMachine loadTiered(File file, int hotRuns)
+            throws FileNotFoundException, IOException, ParseException {
+        MachineLoadEvent event = new MachineLoadEvent();
+        event.begin();
+
+        DetTuringMachine interpreter = readProgram(file);
+        interpreter.disableTraceJit();
+
+        commitLoad(event, file, interpreter);
+        interpreter.getStats().register(file.getPath());
+
+        return new TieredMachine(interpreter, file, hotRuns);
+    }
+
+    /**
+     * Builds the indexes, analyses and compiled forms of a machine once all
+     * Commands are added.
+     * @param machine the machine.
+     * @param layout the layout of its States, may be null.
+     * @param previous the previous version of the machine, may be null.
+     */
+    static void optimize(DetTuringMachine machine, StateLayout layout,
+                         DetTuringMachine previous) {
+        machine.applyLayout(layout);
+        machine.buildIndexes(previous);
+        machine.markAcceptReachable();
+        machine.eliminateDeadTapes();
+        machine.compileAutomaton();
+    }
+
+    /**
+     * Side method reading the States and Commands of a machine.
+     * @param file The input file.
+     * @return The machine with all Commands added.
+     * @throws FileNotFoundException If the input file could not be found.
+     * @throws IOException If an IO error occurs.
+     * @throws ParseException If the file is not using the expected format.
+     */
+    private static DetTuringMachine readProgram(File file)
+            throws FileNotFoundException, IOException, ParseException {
+        DetTuringMachine turingMachine;
         try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
 
             // Read maximum number of states.
@@ -78,19 +182,43 @@ public final class TuringMachineFactory {
                 invalidFileError(line.number);
             }
 
+            // Read optional alphabet.
+            line = readLine(reader, line.number);
+            Alphabet alphabet = Alphabet.DEFAULT;
+            if (line != null && line.text.trim().startsWith(ALPHABET_KEYWORD)) {
+                alphabet = parseAlphabet(line.text, line.number);
+                line = readLine(reader, line.number);
+            }
+
             turingMachine = new DetTuringMachine(numberOfStates, numberOfTapes,
-                    startStateId, stopStateIds, acceptStateIds);
+                    startStateId, stopStateIds, acceptStateIds, alphabet);
 
             // Read Turing program.
-            line = readLine(reader, line.number);
             while (line != null) {
-                parseCmd(line.text, numberOfTapes, numberOfStates,
+                parseCmd(line.text, numberOfTapes, numberOfStates, alphabet,
                         turingMachine, line.number);
                 line = readLine(reader, line.number);
             }
+
+            return turingMachine;
         }
+    }
 
-        return turingMachine;
+    /**
+     * Side method committing the Flight Recorder event of a load, if
+     * recording is enabled.
+     * @param event the event begun with the load.
+     * @param file the file loaded.
+     * @param turingMachine the machine loaded.
+     */
+    private static void commitLoad(MachineLoadEvent event, File file,
+                                   DetTuringMachine turingMachine) {
+        if (event.shouldCommit()) {
+            event.file = file.getPath();
+            event.states = turingMachine.getStateCount();
+            event.transitions = turingMachine.getCommandCount();
+            event.commit();
+        }
     }
 
     private static Line readLine(BufferedReader reader, int lineNumber)
@@ -108,7 +236,7 @@ public final class TuringMachineFactory {
     }
 
     private static void parseCmd(String line, int numberOfTapes,
-                                 int numberOfStates,
+                                 int numberOfStates, Alphabet alphabet,
                                  TuringMachine turingMachine, int lineNumber)
             throws ParseException {
         /*
@@ -127,13 +255,13 @@ public final class TuringMachineFactory {
         int sourceStateId = parseStateId(args[0], numberOfStates, lineNumber);
 
         // Parse input tape.
-        char inputTapeChar = parseChar(args[1], lineNumber);
+        char inputTapeChar = parseChar(args[1], alphabet, lineNumber);
 
         // Parse working tapes - the output tape is the first working tape, but
         // not counted.
         char[] tapeChars = new char[numberOfTapes + 1];
         for (int i = 0; i < numberOfTapes + 1; ++i) {
-            tapeChars[i] = parseChar(args[2 + i], lineNumber);
+            tapeChars[i] = parseChar(args[2 + i], alphabet, lineNumber);
         }
 
         // Parse target state.
@@ -150,7 +278,7 @@ public final class TuringMachineFactory {
         Direction[] tapeHeadMoves = new Direction[numberOfTapes + 1];
         for (int i = 0; i < newTapeChars.length; ++i) {
             int pos = 4 + numberOfTapes + 1 + i * 2;
-            newTapeChars[i] = parseChar(args[pos], lineNumber);
+            newTapeChars[i] = parseChar(args[pos], alphabet, lineNumber);
             tapeHeadMoves[i] = parseMovement(args[pos + 1], lineNumber);
         }
 
@@ -167,13 +295,27 @@ public final class TuringMachineFactory {
         return Direction.values()[value + 1];
     }
 
-    private static char parseChar(String arg, int lineNumber)
+    private static Alphabet parseAlphabet(String line, int lineNumber)
+            throws ParseException {
+        String[] args = line.trim().split(DELIMITER);
+        Alphabet alphabet = null;
+        if (args.length == 2 && args[0].equals(ALPHABET_KEYWORD)) {
+            alphabet = Alphabet.parse(args[1]);
+        }
+        if (alphabet == null) {
+            invalidFileError(lineNumber);
+        }
+        return alphabet;
+    }
+
+    private static char parseChar(String arg, Alphabet alphabet,
+                                  int lineNumber)
             throws ParseException {
         char c = '\u0000';
 
         if (arg.length() == 1) {
             c = arg.charAt(0);
-            if (!DetTuringMachine.isValidTapeChar(c)) {
+            if (!alphabet.isTapeSymbol(c)) {
                 invalidFileError(lineNumber);
             }
         } else {
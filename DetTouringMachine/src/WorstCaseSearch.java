@@ -0,0 +1,394 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Search of the inputs up to a given length making a machine run the most
+ * steps or reach the most tape cells, to find slow inputs before they
+ * show up in production.
+ *
+ * The search keeps a corpus of inputs, seeded like ComplexityProfiler with
+ * words made of two blocks of one symbol each and random words. Every round
+ * picks an input, preferably one of the worst found so far, and mutates it
+ * a few times: changing, inserting or deleting a symbol, duplicating or
+ * repeating a block, or splicing it with another input of the corpus. The
+ * machine runs the result, counting how often every Command is executed.
+ * Inputs executing a Command a new order of magnitude of times, or a
+ * Command never executed before, join the corpus even if they are cheap,
+ * so the search reaches all parts of the machine and not only the
+ * neighbourhood of the first slow input. Several threads mutate and run at
+ * once, sharing the corpus, the coverage and the worst inputs.
+ *
+ * Runs stop at a step budget; inputs reaching it are reported as not
+ * halted, with the budget as their steps. The Shell command "search" runs
+ * it on the current machine.
+ */
+public final class WorstCaseSearch {
+
+    /**
+     * Cost the search maximizes.
+     */
+    public enum Metric {
+        /**
+         * Steps of the run.
+         */
+        STEPS,
+        /**
+         * Cells reached on the output and WorkTapes.
+         */
+        CELLS
+    }
+
+    /**
+     * Input found by the search together with its cost.
+     */
+    public static final class Case {
+        private final String word;
+        private final long steps;
+        private final long cells;
+        private final boolean halted;
+
+        private Case(String word, long steps, long cells, boolean halted) {
+            this.word = word;
+            this.steps = steps;
+            this.cells = cells;
+            this.halted = halted;
+        }
+
+        /**
+         * @return the input.
+         */
+        public String getWord() {
+            return word;
+        }
+
+        /**
+         * @return the steps of the run.
+         */
+        public long getSteps() {
+            return steps;
+        }
+
+        /**
+         * @return the cells reached on the output and WorkTapes.
+         */
+        public long getCells() {
+            return cells;
+        }
+
+        /**
+         * @return false if the run reached the step budget.
+         */
+        public boolean isHalted() {
+            return halted;
+        }
+
+        @Override
+        public String toString() {
+            return steps + "," + cells + "," + halted + "," + word;
+        }
+    }
+
+    //Orders of magnitude of executions told apart per Command
+    private static final int BUCKETS = 8;
+    //Inputs of the corpus at most, the oldest ones are replaced
+    private static final int MAX_CORPUS = 4096;
+    //Mutations applied at most to a picked input
+    private static final int MAX_MUTATIONS = 4;
+    //Seeds made of random words
+    private static final int RANDOM_SEEDS = 64;
+
+    private final DetTuringMachine machine;
+    private final String symbols;
+    private final int maxLength;
+    private final long maxSteps;
+    private final Metric metric;
+    private final Comparator<Case> worstFirst;
+
+    //All following fields are guarded by this search
+    private final List<String> corpus = new ArrayList<>();
+    private int oldest;
+    private final boolean[] coverage;
+    private int covered;
+    private final TreeSet<Case> worst;
+    private final Set<String> worstWords = new HashSet<>();
+    private int top;
+
+    /**
+     * Constructor method for a search.
+     * @param machine the machine.
+     * @param symbols the symbols of the inputs.
+     * @param maxLength the maximum length of the inputs.
+     * @param maxSteps the step budget of every run.
+     * @param metric the cost to maximize.
+     * @throws IllegalArgumentException If there are no symbols or the
+     * maximum length is not positive.
+     */
+    public WorstCaseSearch(DetTuringMachine machine, String symbols,
+                           int maxLength, long maxSteps, Metric metric) {
+        if (symbols.isEmpty() || maxLength < 1) {
+            throw new IllegalArgumentException("Invalid parameters!");
+        }
+        this.machine = machine;
+        this.symbols = symbols;
+        this.maxLength = maxLength;
+        this.maxSteps = maxSteps;
+        this.metric = metric;
+        this.coverage = new boolean[machine.getCommandCount() * BUCKETS];
+        Comparator<Case> byCost = metric == Metric.STEPS
+                ? Comparator.comparingLong(Case::getSteps)
+                : Comparator.comparingLong(Case::getCells);
+        this.worstFirst = byCost.reversed()
+                .thenComparing(Case::getWord);
+        this.worst = new TreeSet<>(worstFirst);
+    }
+
+    /**
+     * Searches the worst inputs.
+     * @param k the amount of worst inputs to find.
+     * @param runs the amount of runs of the machine.
+     * @param threads the amount of threads mutating and running.
+     * @param seed the seed of the mutations.
+     * @return the worst inputs, the worst first.
+     * @throws InterruptedException If interrupted while waiting.
+     * @throws IllegalArgumentException If k or threads is less than 1.
+     */
+    public List<Case> search(int k, long runs, int threads, long seed)
+            throws InterruptedException {
+        if (k < 1 || threads < 1) {
+            throw new IllegalArgumentException("Invalid parameters!");
+        }
+        synchronized (this) {
+            corpus.clear();
+            worst.clear();
+            worstWords.clear();
+            top = k;
+        }
+        Random random = new Random(seed);
+        AtomicLong remaining = new AtomicLong(runs);
+        for (String word : ComplexityProfiler.words(symbols, maxLength,
+                RANDOM_SEEDS, random)) {
+            if (remaining.getAndDecrement() <= 0) {
+                break;
+            }
+            measure(word);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                Random own = new Random(seed + 1 + i);
+                tasks.add(() -> {
+                    while (remaining.getAndDecrement() > 0) {
+                        measure(mutate(pick(own), own));
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> result : pool.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search failed!", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        synchronized (this) {
+            return new ArrayList<>(worst);
+        }
+    }
+
+    /**
+     * @return the amount of Commands executed by any run so far.
+     */
+    public synchronized int getCoveredCommands() {
+        int toReturn = 0;
+        for (int i = 0; i < coverage.length; i += BUCKETS) {
+            for (int j = 0; j < BUCKETS; j++) {
+                if (coverage[i + j]) {
+                    toReturn++;
+                    break;
+                }
+            }
+        }
+        return toReturn;
+    }
+
+    /**
+     * @return the amount of coverage buckets reached so far, every order of
+     * magnitude of executions of a Command counting once.
+     */
+    public synchronized int getCoveredBuckets() {
+        return covered;
+    }
+
+    /**
+     * Side method running an input, counting the executions of every
+     * Command, and keeping it if it is among the worst or reaches new
+     * coverage.
+     * @param word the input.
+     */
+    private void measure(String word) {
+        int[] hits = new int[machine.getCommandCount()];
+        Configuration conf = machine.createConfiguration(word);
+        long step = 0;
+        int next = machine.nextIndex(conf);
+        while (next >= 0 && step < maxSteps) {
+            hits[next]++;
+            conf.setState(machine.getState(machine.getCommand(next)
+                    .execute(conf.getInputTape(), conf.getTapes())));
+            step++;
+            next = machine.nextIndex(conf);
+        }
+        long cells = 0;
+        for (Tape tape : conf.getTapes()) {
+            cells += tape.getUsedCells();
+        }
+        Case measured = new Case(word, step, cells, next < 0);
+
+        synchronized (this) {
+            boolean interesting = false;
+            for (int i = 0; i < hits.length; i++) {
+                if (hits[i] > 0) {
+                    int slot = i * BUCKETS + bucket(hits[i]);
+                    if (!coverage[slot]) {
+                        coverage[slot] = true;
+                        covered++;
+                        interesting = true;
+                    }
+                }
+            }
+            if (!worstWords.contains(word) && (worst.size() < top
+                    || worstFirst.compare(measured, worst.last()) < 0)) {
+                worst.add(measured);
+                worstWords.add(word);
+                if (worst.size() > top) {
+                    worstWords.remove(worst.pollLast().getWord());
+                }
+                interesting = true;
+            }
+            if (interesting) {
+                if (corpus.size() < MAX_CORPUS) {
+                    corpus.add(word);
+                } else {
+                    corpus.set(oldest, word);
+                    oldest = (oldest + 1) % MAX_CORPUS;
+                }
+            }
+        }
+    }
+
+    /**
+     * Side method choosing the order of magnitude of executions.
+     * @param hits the executions of a Command, at least 1.
+     * @return the bucket, 0 to {@link #BUCKETS} - 1.
+     */
+    private static int bucket(int hits) {
+        return Math.min(BUCKETS - 1, 31 - Integer.numberOfLeadingZeros(hits));
+    }
+
+    /**
+     * Side method picking the input to mutate: half of the time one of the
+     * worst, otherwise any of the corpus.
+     * @param random the random generator of the thread.
+     * @return the input.
+     */
+    private synchronized String pick(Random random) {
+        if (corpus.isEmpty()) {
+            return "";
+        }
+        if (random.nextBoolean() && !worst.isEmpty()) {
+            int index = random.nextInt(worst.size());
+            for (Case found : worst) {
+                if (index-- == 0) {
+                    return found.getWord();
+                }
+            }
+        }
+        return corpus.get(random.nextInt(corpus.size()));
+    }
+
+    /**
+     * Side method applying a few random mutations to an input.
+     * @param word the input.
+     * @param random the random generator of the thread.
+     * @return the mutated input, at most of the maximum length.
+     */
+    private String mutate(String word, Random random) {
+        StringBuilder toReturn = new StringBuilder(word);
+        int mutations = 1 + random.nextInt(MAX_MUTATIONS);
+        for (int i = 0; i < mutations; i++) {
+            int length = toReturn.length();
+            int at = length == 0 ? 0 : random.nextInt(length);
+            switch (random.nextInt(6)) {
+                case 0:
+                    //Changing a symbol
+                    if (length > 0) {
+                        toReturn.setCharAt(at, randomSymbol(random));
+                    }
+                    break;
+                case 1:
+                    toReturn.insert(at, randomSymbol(random));
+                    break;
+                case 2:
+                    if (length > 0) {
+                        toReturn.deleteCharAt(at);
+                    }
+                    break;
+                case 3:
+                    //Duplicating a block in place
+                    if (length > 0) {
+                        int end = at + 1 + random.nextInt(length - at);
+                        toReturn.insert(at, toReturn.substring(at, end));
+                    }
+                    break;
+                case 4:
+                    //Repeating a block up to the maximum length
+                    if (length > 0) {
+                        int end = at + 1 + random.nextInt(length - at);
+                        String block = toReturn.substring(at, end);
+                        toReturn.setLength(at);
+                        while (toReturn.length() < maxLength) {
+                            toReturn.append(block);
+                        }
+                    }
+                    break;
+                default:
+                    //Splicing with the end of another input
+                    String other = pick(random);
+                    int from = other.isEmpty() ? 0 : random.nextInt(
+                            other.length());
+                    toReturn.setLength(at);
+                    toReturn.append(other, from, other.length());
+                    break;
+            }
+            if (toReturn.length() > maxLength) {
+                toReturn.setLength(maxLength);
+            }
+        }
+        return toReturn.toString();
+    }
+
+    /**
+     * Side method choosing a random symbol.
+     * @param random the random generator of the thread.
+     * @return the symbol.
+     */
+    private char randomSymbol(Random random) {
+        return symbols.charAt(random.nextInt(symbols.length()));
+    }
+}